@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Decides which map an {@link ObjectNode} keeps its children in.
+ *
+ * @author Foomf
+ */
+public enum ChildMapStrategy {
+    /**
+     * Keys are kept in sorted order. This is the default.
+     */
+    SORTED,
+
+    /**
+     * Keys are kept in insertion order in a pair of arrays that are scanned
+     * linearly. Best for objects with only a handful of keys.
+     */
+    COMPACT,
+
+    /**
+     * Keys are kept in an open addressing hash table. Best for objects with
+     * a lot of keys. Key order is unspecified.
+     */
+    HASHED,
+
+    /**
+     * Starts out {@link #COMPACT} and switches to {@link #HASHED} once the
+     * object grows past {@link #COMPACT_LIMIT} keys.
+     */
+    ADAPTIVE;
+
+    public static final int COMPACT_LIMIT = 8;
+
+    Map<String, INode> createMap(int expectedSize) {
+        switch (this) {
+            case SORTED:
+                return new TreeMap<>();
+            case COMPACT:
+                return new CompactChildMap(expectedSize);
+            case HASHED:
+                return new HashedChildMap(expectedSize);
+            case ADAPTIVE:
+                if (expectedSize > COMPACT_LIMIT) {
+                    return new HashedChildMap(expectedSize);
+                }
+                return new CompactChildMap(expectedSize);
+            default:
+                throw new UnsupportedOperationException("unknown strategy");
+        }
+    }
+
+    Map<String, INode> grow(Map<String, INode> children) {
+        if (this == ADAPTIVE
+                && children.size() > COMPACT_LIMIT
+                && children instanceof CompactChildMap) {
+            HashedChildMap grown = new HashedChildMap(children.size());
+            grown.putAll(children);
+            return grown;
+        }
+        return children;
+    }
+}
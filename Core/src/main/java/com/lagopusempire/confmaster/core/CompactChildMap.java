@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Child map that keeps its keys and values in two parallel arrays, in
+ * insertion order. Lookups are a linear scan, which beats hashing or tree
+ * descent for the handful of keys most objects have.
+ *
+ * @author Foomf
+ */
+final class CompactChildMap extends AbstractMap<String, INode> {
+    private String[] keys;
+    private INode[] values;
+    private int size;
+
+    CompactChildMap(int expectedSize) {
+        int capacity = Math.max(expectedSize, 2);
+        keys = new String[capacity];
+        values = new INode[capacity];
+    }
+
+    private int indexOf(Object key) {
+        for (int ii = 0; ii < size; ++ii) {
+            if (keys[ii] == key) {
+                return ii;
+            }
+        }
+
+        if (key != null) {
+            for (int ii = 0; ii < size; ++ii) {
+                if (key.equals(keys[ii])) {
+                    return ii;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) != -1;
+    }
+
+    @Override
+    public INode get(Object key) {
+        int index = indexOf(key);
+        return index == -1 ? null : values[index];
+    }
+
+    @Override
+    public INode put(String key, INode value) {
+        int index = indexOf(key);
+        if (index != -1) {
+            INode old = values[index];
+            values[index] = value;
+            return old;
+        }
+
+        if (size == keys.length) {
+            int capacity = keys.length * 2;
+            String[] newKeys = new String[capacity];
+            INode[] newValues = new INode[capacity];
+            System.arraycopy(keys, 0, newKeys, 0, size);
+            System.arraycopy(values, 0, newValues, 0, size);
+            keys = newKeys;
+            values = newValues;
+        }
+
+        keys[size] = key;
+        values[size] = value;
+        size++;
+        return null;
+    }
+
+    @Override
+    public INode remove(Object key) {
+        int index = indexOf(key);
+        if (index == -1) {
+            return null;
+        }
+
+        INode old = values[index];
+        removeAt(index);
+        return old;
+    }
+
+    private void removeAt(int index) {
+        int moved = size - index - 1;
+        System.arraycopy(keys, index + 1, keys, index, moved);
+        System.arraycopy(values, index + 1, values, index, moved);
+        size--;
+        keys[size] = null;
+        values[size] = null;
+    }
+
+    @Override
+    public void clear() {
+        for (int ii = 0; ii < size; ++ii) {
+            keys[ii] = null;
+            values[ii] = null;
+        }
+        size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<String, INode>> entrySet() {
+        return new AbstractSet<Map.Entry<String, INode>>() {
+            @Override
+            public Iterator<Map.Entry<String, INode>> iterator() {
+                return new Iterator<Map.Entry<String, INode>>() {
+                    private int next = 0;
+                    private int last = -1;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public Map.Entry<String, INode> next() {
+                        if (next >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        last = next++;
+                        return new SimpleImmutableEntry<>(keys[last], values[last]);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last == -1) {
+                            throw new IllegalStateException();
+                        }
+                        removeAt(last);
+                        next = last;
+                        last = -1;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import java.util.Arrays;
+
+/**
+ * A list node that can be read and written from several threads at once.
+ * Readers never block. Adds take a lock and write into a spare slot, and
+ * the array doubles when it runs out, so building a list of n items costs
+ * O(n) rather than copying the whole list on every add.
+ *
+ * A reader first reads the length and then the array. An add publishes
+ * the grown array before it fills the new slot, and fills the slot before
+ * it bumps the length. So any index below the length a reader saw is
+ * already set in whichever array it reads.
+ *
+ * @author Foomf
+ */
+public class ConcurrentListNode implements IListNode {
+    private static final INode[] EMPTY = new INode[0];
+
+    private volatile INode[] children;
+    private volatile int length;
+
+    public ConcurrentListNode() {
+        children = EMPTY;
+    }
+
+    public ConcurrentListNode(int initialCapacity) {
+        children = initialCapacity > 0 ? new INode[initialCapacity] : EMPTY;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public INode get(int index) {
+        int count = length;
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + count);
+        }
+        return children[index];
+    }
+
+    @Override
+    public synchronized IListNode add(INode value) {
+        INode[] array = children;
+        int count = length;
+        if (count == array.length) {
+            array = Arrays.copyOf(array, Math.max(4, count * 2));
+            children = array;
+        }
+        array[count] = value;
+        length = count + 1;
+        return this;
+    }
+
+    @Override
+    public ConcurrentListNode deepClone() {
+        int count = length;
+        INode[] array = children;
+        ConcurrentListNode clone = new ConcurrentListNode(count);
+        for (int ii = 0; ii < count; ++ii) {
+            clone.add(array[ii].deepClone());
+        }
+        return clone;
+    }
+
+    @Override
+    public IListNode freeze() {
+        int count = length;
+        INode[] array = children;
+        ListNode copy = new ListNode(count);
+        for (int ii = 0; ii < count; ++ii) {
+            copy.add(array[ii].freeze());
+        }
+        copy.markFrozen();
+        return copy;
+    }
+
+    @Override
+    public boolean isFrozen() {
+        return false;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * An object node that can be read and written from several threads at once.
+ * Children live in a skip list, so reads never block and writers to
+ * different objects never touch the same lock. Keys are kept sorted, just
+ * like the default {@link ObjectNode}.
+ *
+ * Values should be replaced through {@link #set(String, INode)} rather than
+ * changed in place, since a {@link ValueNode} is not safe to write while
+ * another thread reads it. {@link #freeze()} and {@link #deepClone()} see
+ * each child atomically but not the object as a whole.
+ *
+ * @author Foomf
+ */
+public class ConcurrentObjectNode implements IObjectNode {
+    private final ConcurrentNavigableMap<String, INode> children = new ConcurrentSkipListMap<>();
+
+    @Override
+    public INode get(String key) {
+        return children.get(key);
+    }
+
+    @Override
+    public Set<String> keys() {
+        return Collections.unmodifiableSet(children.keySet());
+    }
+
+    @Override
+    public IObjectNode unset(String key) {
+        children.remove(key);
+        return this;
+    }
+
+    @Override
+    public IObjectNode set(String key, INode value) {
+        if (value == null) {
+            return unset(key);
+        }
+
+        children.put(key, value);
+        return this;
+    }
+
+    @Override
+    public ConcurrentObjectNode deepClone() {
+        ConcurrentObjectNode clone = new ConcurrentObjectNode();
+        for (Map.Entry<String, INode> child : children.entrySet()) {
+            clone.children.put(child.getKey(), child.getValue().deepClone());
+        }
+        return clone;
+    }
+
+    @Override
+    public IObjectNode freeze() {
+        ObjectNode copy = new ObjectNode(ChildMapStrategy.SORTED, children.size());
+        for (Map.Entry<String, INode> child : children.entrySet()) {
+            copy.set(child.getKey(), child.getValue().freeze());
+        }
+        copy.markFrozen();
+        return copy;
+    }
+
+    @Override
+    public boolean isFrozen() {
+        return false;
+    }
+}
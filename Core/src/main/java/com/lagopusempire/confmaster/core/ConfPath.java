@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @author Foomf
+ */
+public final class ConfPath {
+    private final String path;
+    private final String[] segments;
+
+    private ConfPath(String path, String[] segments) {
+        this.path = path;
+        this.segments = segments;
+    }
+
+    public static ConfPath compile(String path) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        int end;
+        while ((end = path.indexOf('.', start)) != -1) {
+            parts.add(path.substring(start, end));
+            start = end + 1;
+        }
+        parts.add(path.substring(start));
+        return new ConfPath(path, parts.toArray(new String[parts.size()]));
+    }
+
+    public int length() {
+        return segments.length;
+    }
+
+    public String segment(int index) {
+        return segments[index];
+    }
+
+    public String last() {
+        return segments[segments.length - 1];
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (!(other instanceof ConfPath)) {
+            return false;
+        }
+
+        return path.equals(((ConfPath)other).path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
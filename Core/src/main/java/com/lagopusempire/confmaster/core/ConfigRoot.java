@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Holds the current configuration tree of an application. Trees are frozen
+ * before they are published, so readers on any thread can call
+ * {@link #get()} without locking and keep using the snapshot they got for
+ * as long as they like, even while a reload swaps in a new one.
+ *
+ * @author Foomf
+ */
+public class ConfigRoot {
+    private final AtomicReference<IObjectNode> current;
+
+    public ConfigRoot() {
+        this(PersistentObjectNode.EMPTY);
+    }
+
+    public ConfigRoot(IObjectNode initial) {
+        current = new AtomicReference<>(initial.freeze());
+    }
+
+    public IObjectNode get() {
+        return current.get();
+    }
+
+    public IObjectNode publish(IObjectNode tree) {
+        return current.getAndSet(tree.freeze());
+    }
+
+    public boolean compareAndSet(IObjectNode expected, IObjectNode tree) {
+        return current.compareAndSet(expected, tree.freeze());
+    }
+
+    public IObjectNode update(UnaryOperator<IObjectNode> change) {
+        while (true) {
+            IObjectNode previous = current.get();
+            IObjectNode next = change.apply(previous).freeze();
+            if (current.compareAndSet(previous, next)) {
+                return next;
+            }
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Child map backed by an open addressing hash table with linear probing.
+ * Keys and values live in two parallel arrays, so there is no per entry
+ * object like there is with TreeMap or HashMap. Iteration order is
+ * unspecified.
+ *
+ * @author Foomf
+ */
+final class HashedChildMap extends AbstractMap<String, INode> {
+    private static final int MIN_CAPACITY = 16;
+
+    private String[] keys;
+    private INode[] values;
+    private int size;
+    private int maxFill;
+
+    HashedChildMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 2 / 3 < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        values = new INode[capacity];
+        maxFill = capacity * 2 / 3;
+    }
+
+    private static int slot(Object key, int mask) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private int indexOf(Object key) {
+        if (key == null) {
+            return -1;
+        }
+
+        int mask = keys.length - 1;
+        for (int ii = slot(key, mask); keys[ii] != null; ii = (ii + 1) & mask) {
+            if (keys[ii] == key || keys[ii].equals(key)) {
+                return ii;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) != -1;
+    }
+
+    @Override
+    public INode get(Object key) {
+        int index = indexOf(key);
+        return index == -1 ? null : values[index];
+    }
+
+    @Override
+    public INode put(String key, INode value) {
+        if (key == null) {
+            throw new NullPointerException("key");
+        }
+
+        int mask = keys.length - 1;
+        int ii = slot(key, mask);
+        for (; keys[ii] != null; ii = (ii + 1) & mask) {
+            if (keys[ii] == key || keys[ii].equals(key)) {
+                INode old = values[ii];
+                values[ii] = value;
+                return old;
+            }
+        }
+
+        keys[ii] = key;
+        values[ii] = value;
+        if (++size > maxFill) {
+            rehash(keys.length * 2);
+        }
+        return null;
+    }
+
+    private void rehash(int capacity) {
+        String[] oldKeys = keys;
+        INode[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int ii = 0; ii < oldKeys.length; ++ii) {
+            if (oldKeys[ii] != null) {
+                int jj = slot(oldKeys[ii], mask);
+                while (keys[jj] != null) {
+                    jj = (jj + 1) & mask;
+                }
+                keys[jj] = oldKeys[ii];
+                values[jj] = oldValues[ii];
+            }
+        }
+    }
+
+    @Override
+    public INode remove(Object key) {
+        int index = indexOf(key);
+        if (index == -1) {
+            return null;
+        }
+
+        INode old = values[index];
+        removeAt(index, null);
+        return old;
+    }
+
+    // Shifts later entries of the probe chain back into the hole so that
+    // lookups never stop early on an empty slot. Entries that wrap around
+    // from the start of the table to at or after the hole are added to
+    // wrapped, if it is given.
+    private void removeAt(int index, List<String> wrapped) {
+        size--;
+        int mask = keys.length - 1;
+        int hole = index;
+        int ii = (hole + 1) & mask;
+        while (keys[ii] != null) {
+            int home = slot(keys[ii], mask);
+            if (((ii - home) & mask) >= ((ii - hole) & mask)) {
+                keys[hole] = keys[ii];
+                values[hole] = values[ii];
+                if (wrapped != null && ii < index && hole >= index) {
+                    wrapped.add(keys[hole]);
+                }
+                hole = ii;
+            }
+            ii = (ii + 1) & mask;
+        }
+        keys[hole] = null;
+        values[hole] = null;
+    }
+
+    @Override
+    public void clear() {
+        for (int ii = 0; ii < keys.length; ++ii) {
+            keys[ii] = null;
+            values[ii] = null;
+        }
+        size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<String, INode>> entrySet() {
+        return new AbstractSet<Map.Entry<String, INode>>() {
+            @Override
+            public Iterator<Map.Entry<String, INode>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // Walks the table backwards. Removing an entry only shifts entries that
+    // come after it back into its slot, and those were already walked,
+    // except the ones that wrapped around from the start of the table.
+    // Those are kept aside and returned at the end.
+    private final class EntryIterator implements Iterator<Map.Entry<String, INode>> {
+        private int next = advance(keys.length - 1);
+        private int last = -1;
+        private String lastKey;
+        private final List<String> wrapped = new ArrayList<>();
+
+        private int advance(int from) {
+            while (from >= 0 && keys[from] == null) {
+                from--;
+            }
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0 || !wrapped.isEmpty();
+        }
+
+        @Override
+        public Map.Entry<String, INode> next() {
+            if (next >= 0) {
+                last = next;
+                lastKey = keys[last];
+                next = advance(next - 1);
+                return new SimpleImmutableEntry<>(lastKey, values[last]);
+            }
+            if (wrapped.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+
+            last = -1;
+            lastKey = wrapped.remove(wrapped.size() - 1);
+            return new SimpleImmutableEntry<>(lastKey, get(lastKey));
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+
+            if (last >= 0) {
+                removeAt(last, wrapped);
+                next = advance(next);
+            } else {
+                HashedChildMap.this.remove(lastKey);
+            }
+            lastKey = null;
+        }
+    }
+}
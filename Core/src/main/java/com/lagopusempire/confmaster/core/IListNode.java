@@ -29,45 +29,114 @@ public interface IListNode extends INode {
         return NodeType.LIST;
     }
 
+    @Override
+    IListNode freeze();
+
     int length();
 
     INode get(int index);
 
     IListNode add(INode value) ;
 
-    IListNode add(byte value);
+    @Override
+    default IListNode getList(int index) {
+        INode node = get(index);
+        if (node.getType() == NodeType.LIST) {
+            return (IListNode)node;
+        } else {
+            throw new UnsupportedOperationException("Not a list!");
+        }
+    }
 
-    IListNode add(short value);
+    @Override
+    default IObjectNode getObject(int index) {
+        INode node = get(index);
+        if (node.getType() == NodeType.OBJECT) {
+            return (IObjectNode)node;
+        } else {
+            throw new UnsupportedOperationException("Not an object!");
+        }
+    }
 
-    IListNode add(int value);
+    @Override
+    default IValueNode getValue(int index) {
+        INode node = get(index);
+        if (node.getType() == NodeType.VALUE) {
+            return (IValueNode) node;
+        } else {
+            throw new UnsupportedOperationException("Not a value!");
+        }
+    }
 
-    IListNode add(long value);
+    default IListNode add(byte value) {
+        return add(new ValueNode(value));
+    }
 
-    IListNode add(float value);
+    default IListNode add(short value) {
+        return add(new ValueNode(value));
+    }
 
-    IListNode add(double value);
+    default IListNode add(int value) {
+        return add(new ValueNode(value));
+    }
 
-    IListNode add(String value);
+    default IListNode add(long value) {
+        return add(new ValueNode(value));
+    }
 
-    IListNode add(boolean value);
+    default IListNode add(float value) {
+        return add(new ValueNode(value));
+    }
 
-    IListNode add(char value);
+    default IListNode add(double value) {
+        return add(new ValueNode(value));
+    }
 
-    byte getByte(int index);
+    default IListNode add(boolean value) {
+        return add(new ValueNode(value));
+    }
 
-    short getShort(int index);
+    default IListNode add(char value) {
+        return add(new ValueNode(value));
+    }
+
+    default IListNode add(String value) {
+        return add(new ValueNode(value));
+    }
+
+    default byte getByte(int index) {
+        return getValue(index).byteValue();
+    }
+
+    default short getShort(int index) {
+        return getValue(index).shortValue();
+    }
 
-    int getInt(int index);
+    default int getInt(int index) {
+        return getValue(index).intValue();
+    }
 
-    long getLong(int index);
+    default long getLong(int index) {
+        return getValue(index).longValue();
+    }
 
-    float getFloat(int index);
+    default float getFloat(int index) {
+        return getValue(index).floatValue();
+    }
 
-    double getDouble(int index);
+    default double getDouble(int index) {
+        return getValue(index).doubleValue();
+    }
 
-    boolean getBoolean(int index);
+    default boolean getBoolean(int index) {
+        return getValue(index).booleanValue();
+    }
 
-    char getChar(int index);
+    default char getChar(int index) {
+        return getValue(index).charValue();
+    }
 
-    String getString(int index);
+    default String getString(int index) {
+        return getValue(index).stringValue();
+    }
 }
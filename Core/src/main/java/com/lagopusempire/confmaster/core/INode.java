@@ -34,6 +34,19 @@ public interface INode {
 
     INode deepClone();
 
+    INode freeze();
+
+    boolean isFrozen();
+
+    /**
+     * Returns a number that changes whenever this node or anything below it
+     * changes, so a cache built from the node can tell when it went stale.
+     * Nodes that do not keep track of changes return -1.
+     */
+    default long getVersion() {
+        return -1;
+    }
+
     default IListNode getList(int index) {
         throw Unsupported("GetList(int)");
     }
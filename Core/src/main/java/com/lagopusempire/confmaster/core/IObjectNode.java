@@ -34,73 +34,242 @@ public interface IObjectNode extends INode {
         return NodeType.OBJECT;
     }
 
+    @Override
+    IObjectNode freeze();
+
     Set<String> keys();
 
     INode get(String key);
 
-    ObjectNode resolve(Deque<String> paths);
-
-    IObjectNode resolve(String path);
-
     IObjectNode unset(String key);
 
     IObjectNode set(String key, INode value);
-    
-    <T> T to(T instance, IObjectDeserializer<T> deserializer);
 
-    <T extends IDeserializableObject> T to(T instance);
+    @Override
+    default IListNode getList(String key) {
+        return asList(get(key));
+    }
+
+    @Override
+    default IObjectNode getObject(String key) {
+        return asObject(get(key));
+    }
+
+    @Override
+    default IValueNode getValue(String key) {
+        return asValue(get(key));
+    }
+
+    default IObjectNode resolve(Deque<String> paths) {
+        IObjectNode node = this;
+        while (!paths.isEmpty()) {
+            node = node.getObject(paths.removeFirst());
+        }
+        return node;
+    }
+
+    default INode resolveNode(String path) {
+        IObjectNode node = this;
+        int start = 0;
+        int end;
+        while ((end = path.indexOf('.', start)) != -1) {
+            node = node.getObject(path.substring(start, end));
+            start = end + 1;
+        }
+        return node.get(path.substring(start));
+    }
+
+    default INode resolveNode(ConfPath path) {
+        IObjectNode node = this;
+        for (int ii = 0; ii < path.length() - 1; ++ii) {
+            node = node.getObject(path.segment(ii));
+        }
+        return node.get(path.last());
+    }
+
+    default IObjectNode resolve(String path) {
+        return asObject(resolveNode(path));
+    }
+
+    default IObjectNode resolve(ConfPath path) {
+        return asObject(resolveNode(path));
+    }
+
+    default <T> T to(T instance, IObjectDeserializer<T> deserializer) {
+        deserializer.Deserialize(instance, this);
+        return instance;
+    }
+
+    default <T extends IDeserializableObject> T to(T instance) {
+        instance.Deserialize(this);
+        return instance;
+    }
+
+    default IObjectNode set(String key, byte value) {
+        return set(key, new ValueNode(value));
+    }
+
+    default IObjectNode set(String key, short value) {
+        return set(key, new ValueNode(value));
+    }
+
+    default IObjectNode set(String key, int value) {
+        return set(key, new ValueNode(value));
+    }
+
+    default IObjectNode set(String key, long value) {
+        return set(key, new ValueNode(value));
+    }
+
+    default IObjectNode set(String key, float value) {
+        return set(key, new ValueNode(value));
+    }
+
+    default IObjectNode set(String key, double value) {
+        return set(key, new ValueNode(value));
+    }
+
+    default IObjectNode set(String key, boolean value) {
+        return set(key, new ValueNode(value));
+    }
 
-    IObjectNode set(String key, byte value);
+    default IObjectNode set(String key, char value) {
+        return set(key, new ValueNode(value));
+    }
 
-    IObjectNode set(String key, short value);
+    default IObjectNode set(String key, String value) {
+        return set(key, new ValueNode(value));
+    }
 
-    IObjectNode set(String key, int value);
+    default byte getByte(String key) {
+        return getValue(key).byteValue();
+    }
 
-    IObjectNode set(String key, long value);
+    default short getShort(String key) {
+        return getValue(key).shortValue();
+    }
 
-    IObjectNode set(String key, float value);
+    default int getInt(String key) {
+        return getValue(key).intValue();
+    }
 
-    IObjectNode set(String key, double value);
+    default long getLong(String key) {
+        return getValue(key).longValue();
+    }
 
-    IObjectNode set(String key, String value);
+    default float getFloat(String key) {
+        return getValue(key).floatValue();
+    }
 
-    IObjectNode set(String key, boolean value);
+    default double getDouble(String key) {
+        return getValue(key).doubleValue();
+    }
 
-    IObjectNode set(String key, char value);
+    default boolean getBoolean(String key) {
+        return getValue(key).booleanValue();
+    }
 
-    byte getByte(String key);
+    default char getChar(String key) {
+        return getValue(key).charValue();
+    }
 
-    short getShort(String key);
+    default String getString(String key) {
+        return getValue(key).stringValue();
+    }
 
-    int getInt(String key);
+    default IListNode resolveList(String path) {
+        return asList(resolveNode(path));
+    }
 
-    long getLong(String key);
+    default byte resolveByte(String path) {
+        return asValue(resolveNode(path)).byteValue();
+    }
 
-    float getFloat(String key);
+    default short resolveShort(String path) {
+        return asValue(resolveNode(path)).shortValue();
+    }
 
-    double getDouble(String key);
+    default int resolveInt(String path) {
+        return asValue(resolveNode(path)).intValue();
+    }
 
-    boolean getBoolean(String key);
+    default long resolveLong(String path) {
+        return asValue(resolveNode(path)).longValue();
+    }
 
-    char getChar(String key);
+    default float resolveFloat(String path) {
+        return asValue(resolveNode(path)).floatValue();
+    }
 
-    String getString(String key);
-    
-    IListNode resolveList(String path);
+    default double resolveDouble(String path) {
+        return asValue(resolveNode(path)).doubleValue();
+    }
 
-    byte resolveByte(String path);
+    default char resolveChar(String path) {
+        return asValue(resolveNode(path)).charValue();
+    }
 
-    short resolveShort(String path);
+    default String resolveString(String path) {
+        return asValue(resolveNode(path)).stringValue();
+    }
+
+    default IListNode resolveList(ConfPath path) {
+        return asList(resolveNode(path));
+    }
+
+    default byte resolveByte(ConfPath path) {
+        return asValue(resolveNode(path)).byteValue();
+    }
 
-    int resolveInt(String path);
+    default short resolveShort(ConfPath path) {
+        return asValue(resolveNode(path)).shortValue();
+    }
 
-    long resolveLong(String path);
+    default int resolveInt(ConfPath path) {
+        return asValue(resolveNode(path)).intValue();
+    }
 
-    float resolveFloat(String path);
+    default long resolveLong(ConfPath path) {
+        return asValue(resolveNode(path)).longValue();
+    }
 
-    double resolveDouble(String path);
+    default float resolveFloat(ConfPath path) {
+        return asValue(resolveNode(path)).floatValue();
+    }
 
-    char resolveChar(String path);
+    default double resolveDouble(ConfPath path) {
+        return asValue(resolveNode(path)).doubleValue();
+    }
 
-    String resolveString(String path);
+    default char resolveChar(ConfPath path) {
+        return asValue(resolveNode(path)).charValue();
+    }
+
+    default String resolveString(ConfPath path) {
+        return asValue(resolveNode(path)).stringValue();
+    }
+
+    private static IListNode asList(INode node) {
+        if (node.getType() == NodeType.LIST) {
+            return (IListNode)node;
+        } else {
+            throw new UnsupportedOperationException("Not a list!");
+        }
+    }
+
+    private static IObjectNode asObject(INode node) {
+        if (node.getType() == NodeType.OBJECT) {
+            return (IObjectNode)node;
+        } else {
+            throw new UnsupportedOperationException("Not an object!");
+        }
+    }
+
+    private static IValueNode asValue(INode node) {
+        if (node.getType() == NodeType.VALUE) {
+            return (IValueNode)node;
+        } else {
+            throw new UnsupportedOperationException("Not a value!");
+        }
+    }
 }
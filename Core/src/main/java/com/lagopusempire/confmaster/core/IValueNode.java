@@ -19,6 +19,8 @@
  */
 package com.lagopusempire.confmaster.core;
 
+import java.math.BigInteger;
+
 /**
  *
  * @author Foomf
@@ -29,6 +31,11 @@ public interface IValueNode extends INode {
         return NodeType.VALUE;
     }
 
+    @Override
+    IValueNode freeze();
+
+    ValueType getValueType();
+
     Number getNumber();
 
     void set(byte value);
@@ -49,6 +56,8 @@ public interface IValueNode extends INode {
 
     void set(char value);
 
+    void set(BigInteger value);
+
     byte byteValue();
 
     short shortValue();
@@ -66,4 +75,6 @@ public interface IValueNode extends INode {
     char charValue();
 
     String stringValue();
+
+    BigInteger bigIntegerValue();
 }
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import java.util.function.Supplier;
+
+/**
+ * A list node whose contents are only built the first time something reads
+ * or writes it. See {@link LazyObjectNode}.
+ *
+ * @author Foomf
+ */
+public final class LazyListNode extends TrackedNode implements IListNode {
+    private Supplier<? extends IListNode> loader;
+    private volatile IListNode target;
+
+    public LazyListNode(Supplier<? extends IListNode> loader) {
+        this.loader = loader;
+    }
+
+    public boolean isLoaded() {
+        return target != null;
+    }
+
+    private IListNode target() {
+        IListNode node = target;
+        if (node == null) {
+            synchronized (this) {
+                node = target;
+                if (node == null) {
+                    node = loader.get();
+                    adopt(node);
+                    loader = null;
+                    target = node;
+                }
+            }
+        }
+        return node;
+    }
+
+    @Override
+    public int length() {
+        return target().length();
+    }
+
+    @Override
+    public INode get(int index) {
+        return target().get(index);
+    }
+
+    @Override
+    public IListNode add(INode value) {
+        target().add(value);
+        return this;
+    }
+
+    @Override
+    public IListNode deepClone() {
+        return (IListNode)target().deepClone();
+    }
+
+    @Override
+    public IListNode freeze() {
+        return target().freeze();
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * An object node whose contents are only built the first time something
+ * reads or writes it. Until then it holds just the loader. Once loaded it
+ * forwards everything to the loaded node, which it adopts so that changes
+ * still bump the versions above it.
+ *
+ * @author Foomf
+ */
+public final class LazyObjectNode extends TrackedNode implements IObjectNode {
+    private Supplier<? extends IObjectNode> loader;
+    private volatile IObjectNode target;
+
+    public LazyObjectNode(Supplier<? extends IObjectNode> loader) {
+        this.loader = loader;
+    }
+
+    public boolean isLoaded() {
+        return target != null;
+    }
+
+    private IObjectNode target() {
+        IObjectNode node = target;
+        if (node == null) {
+            synchronized (this) {
+                node = target;
+                if (node == null) {
+                    node = loader.get();
+                    adopt(node);
+                    loader = null;
+                    target = node;
+                }
+            }
+        }
+        return node;
+    }
+
+    @Override
+    public INode get(String key) {
+        return target().get(key);
+    }
+
+    @Override
+    public Set<String> keys() {
+        return target().keys();
+    }
+
+    @Override
+    public INode resolveNode(String path) {
+        return target().resolveNode(path);
+    }
+
+    @Override
+    public INode resolveNode(ConfPath path) {
+        return target().resolveNode(path);
+    }
+
+    @Override
+    public IObjectNode unset(String key) {
+        target().unset(key);
+        return this;
+    }
+
+    @Override
+    public IObjectNode set(String key, INode value) {
+        target().set(key, value);
+        return this;
+    }
+
+    @Override
+    public IObjectNode deepClone() {
+        return (IObjectNode)target().deepClone();
+    }
+
+    @Override
+    public IObjectNode freeze() {
+        return target().freeze();
+    }
+}
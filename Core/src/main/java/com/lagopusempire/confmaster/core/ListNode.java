@@ -25,170 +25,164 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
+ * Frozen the same way as {@link ObjectNode}: in place, with writable copies
+ * handed out on the next read.
  *
  * @author Foomf
  */
-public class ListNode implements IListNode {
-    private List<INode> children = new ArrayList<>();
+public class ListNode extends TrackedNode implements IListNode {
+    private List<INode> children;
+    // Whether a snapshot holds the children list too, so it must be copied
+    // before it is changed.
+    private boolean shared;
+    private ListNode snapshot;
+    private long snapshotVersion;
 
-    @Override
-    public int length() {
-        return children.size();
+    public ListNode() {
+        children = new ArrayList<>();
     }
 
-    @Override
-    public INode get(int index) {
-        return children.get(index);
+    public ListNode(int initialCapacity) {
+        children = new ArrayList<>(initialCapacity);
     }
 
-    @Override
-    public IListNode getList(int index) {
-        INode node = children.get(index);
-        if (node.getType() == NodeType.LIST) {
-            return (IListNode)node;
-        } else {
-            throw new UnsupportedOperationException("Not a list!");
-        }
+    private ListNode(List<INode> children) {
+        this.children = children;
     }
 
     @Override
-    public IObjectNode getObject(int index) {
-        INode node = children.get(index);
-        if (node.getType() == NodeType.OBJECT) {
-            return (IObjectNode)node;
-        } else {
-            throw new UnsupportedOperationException("Not an object!");
-        }
+    public int length() {
+        return children.size();
     }
 
     @Override
-    public IValueNode getValue(int index) {
-        INode node = children.get(index);
-        if (node.getType() == NodeType.VALUE) {
-            return (IValueNode) node;
-        } else {
-            throw new UnsupportedOperationException("Not a value!");
+    public INode get(int index) {
+        INode child = children.get(index);
+        if (!child.isFrozen() || isFrozen()) {
+            return child;
         }
+
+        INode copy = thaw(child);
+        if (copy != child) {
+            writableChildren().set(index, copy);
+            adopt(copy);
+        }
+        return copy;
     }
 
     @Override
     public IListNode deepClone() {
-        ListNode clone = new ListNode();
+        ListNode clone = new ListNode(children.size());
         children.forEach(child -> {
-            clone.children.add(child.deepClone());
+            INode childClone = child.deepClone();
+            clone.children.add(childClone);
+            clone.adopt(childClone);
         });
         return clone;
     }
 
     @Override
-    public IListNode add(INode value) {
-        children.add(value);
-        return this;
-    }
-    
-    public static <T> ListNode from(Iterable<T> data, IObjectSerializer<T> serializer) {
-        ListNode node = new ListNode();
-        for(T datum : data) {
-            node.add(ObjectNode.from(datum, serializer));
+    public IListNode freeze() {
+        if (isFrozen()) {
+            return this;
         }
-        return node;
-    }
 
-    public static  ListNode from(Iterable<ISerializableObject> data) {
-        ListNode node = new ListNode();
-        for(ISerializableObject datum : data) {
-            node.add(ObjectNode.from(datum));
+        if (snapshot != null && snapshotVersion == getVersion()) {
+            return snapshot;
         }
-        return node;
-    }
 
-    @Override
-    public IListNode add(byte value) {
-        return add(new ValueNode(value));
-    }
-
-    @Override
-    public IListNode add(short value) {
-        return add(new ValueNode(value));
-    }
-
-    @Override
-    public IListNode add(int value) {
-        return add(new ValueNode(value));
-    }
-
-    @Override
-    public IListNode add(long value) {
-        return add(new ValueNode(value));
-    }
-
-    @Override
-    public IListNode add(float value) {
-        return add(new ValueNode(value));
-    }
-
-    @Override
-    public IListNode add(double value) {
-        return add(new ValueNode(value));
-    }
-
-    @Override
-    public IListNode add(String value) {
-        return add(new ValueNode(value));
-    }
-
-    @Override
-    public IListNode add(boolean value) {
-        return add(new ValueNode(value));
-    }
+        boolean frozeAny = false;
+        List<INode> frozen = children;
+        for (int ii = 0; ii < children.size(); ++ii) {
+            INode child = children.get(ii);
+            if (child.isFrozen()) {
+                continue;
+            }
+            if (freezeInPlace(this, child)) {
+                frozeAny = true;
+                continue;
+            }
+
+            if (frozen == children) {
+                frozen = new ArrayList<>(children);
+            }
+            frozen.set(ii, child.freeze());
+        }
 
-    @Override
-    public IListNode add(char value) {
-        return add(new ValueNode(value));
-    }
+        ListNode copy = new ListNode(frozen);
+        copy.markFrozen();
+        if (frozeAny) {
+            changed();
+        }
 
-    @Override
-    public byte getByte(int index) {
-        return getValue(index).byteValue();
+        // Children that aren't frozen in place can change without telling
+        // this node, so a snapshot holding copies of them isn't kept.
+        if (frozen == children) {
+            shared = true;
+            snapshot = copy;
+            snapshotVersion = getVersion();
+        }
+        return copy;
     }
 
-    @Override
-    public short getShort(int index) {
-        return getValue(index).shortValue();
-    }
+    void freezeInPlace(TrackedNode from) {
+        List<INode> frozen = children;
+        for (int ii = 0; ii < children.size(); ++ii) {
+            INode child = children.get(ii);
+            if (child.isFrozen() || freezeInPlace(this, child)) {
+                continue;
+            }
 
-    @Override
-    public int getInt(int index) {
-        return getValue(index).intValue();
-    }
+            if (frozen == children) {
+                frozen = new ArrayList<>(children);
+            }
+            frozen.set(ii, child.freeze());
+        }
 
-    @Override
-    public long getLong(int index) {
-        return getValue(index).longValue();
+        children = frozen;
+        shared = false;
+        snapshot = null;
+        freezeHere(from);
     }
 
-    @Override
-    public float getFloat(int index) {
-        return getValue(index).floatValue();
+    ListNode thaw() {
+        ListNode copy = new ListNode(children);
+        copy.shared = true;
+        copy.snapshot = this;
+        return copy;
     }
 
-    @Override
-    public double getDouble(int index) {
-        return getValue(index).doubleValue();
+    private List<INode> writableChildren() {
+        if (shared) {
+            children = new ArrayList<>(children);
+            shared = false;
+        }
+        snapshot = null;
+        return children;
     }
 
     @Override
-    public boolean getBoolean(int index) {
-        return getValue(index).booleanValue();
+    public IListNode add(INode value) {
+        ensureMutable();
+        writableChildren().add(value);
+        adopt(value);
+        changed();
+        return this;
     }
-
-    @Override
-    public char getChar(int index) {
-        return getValue(index).charValue();
+    
+    public static <T> ListNode from(Iterable<T> data, IObjectSerializer<T> serializer) {
+        ListNode node = new ListNode();
+        for(T datum : data) {
+            node.add(ObjectNode.from(datum, serializer));
+        }
+        return node;
     }
 
-    @Override
-    public String getString(int index) {
-        return getValue(index).stringValue();
+    public static  ListNode from(Iterable<ISerializableObject> data) {
+        ListNode node = new ListNode();
+        for(ISerializableObject datum : data) {
+            node.add(ObjectNode.from(datum));
+        }
+        return node;
     }
 }
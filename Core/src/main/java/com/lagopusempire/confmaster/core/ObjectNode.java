@@ -19,293 +19,315 @@
  */
 package com.lagopusempire.confmaster.core;
 
-import com.lagopusempire.confmaster.core.serialization.IDeserializableObject;
-import com.lagopusempire.confmaster.core.serialization.IObjectDeserializer;
 import com.lagopusempire.confmaster.core.serialization.IObjectSerializer;
 import com.lagopusempire.confmaster.core.serialization.ISerializableObject;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Freezing an object freezes its children in place rather than copying
+ * them, so any node taken from it before the freeze can't be changed any
+ * more. Reading through the object afterwards hands out writable copies,
+ * which share their children with the snapshot until they are changed.
  *
  * @author Foomf
  */
-public class ObjectNode implements IObjectNode {
-    private final Map<String, INode> children = new TreeMap<>();
+public class ObjectNode extends TrackedNode implements IObjectNode {
+    private final ChildMapStrategy strategy;
+    private Map<String, INode> children;
+    // Whether a snapshot holds the children map too, so it must be copied
+    // before it is changed.
+    private boolean shared;
+    private Map<String, INode> resolutionCache;
+    private long cacheVersion;
+    private ObjectNode snapshot;
+    private long snapshotVersion;
+    private boolean indexed;
+    private volatile PathIndex pathIndex;
 
-    @Override
-    public INode get(String key) {
-        return children.get(key);
+    public ObjectNode() {
+        this(ChildMapStrategy.SORTED);
     }
 
-    @Override
-    public Set<String> keys() {
-        return children.keySet();
+    public ObjectNode(ChildMapStrategy strategy) {
+        this(strategy, 0);
     }
 
-    @Override
-    public ObjectNode resolve(Deque<String> paths) {
-        if (paths.isEmpty()) {
-            return this;
-        }
-
-        IObjectNode next = getObject(paths.removeFirst());
-        return next.resolve(paths);
+    public ObjectNode(ChildMapStrategy strategy, int expectedSize) {
+        this.strategy = strategy;
+        this.children = strategy.createMap(expectedSize);
     }
 
-    @Override
-    public ObjectNode resolve(String path) {
-        String[] parts = path.split("\\.");
-        Deque<String> list = new LinkedList<>(Arrays.asList(parts));
-        return resolve(list);
+    private ObjectNode(ChildMapStrategy strategy, Map<String, INode> children) {
+        this.strategy = strategy;
+        this.children = children;
     }
 
-    @Override
-    public IListNode getList(String key) {
-        INode node = children.get(key);
-        if (node.getType() == NodeType.LIST) {
-            return (IListNode)node;
-        } else {
-            throw new UnsupportedOperationException("Not a list!");
-        }
-    }
-
-    @Override
-    public IObjectNode getObject(String key) {
-        INode node = children.get(key);
-        if (node.getType() == NodeType.OBJECT) {
-            return (IObjectNode)node;
-        } else {
-            throw new UnsupportedOperationException("Not an object!");
+    public ObjectNode enableResolutionCache() {
+        if (resolutionCache == null) {
+            resolutionCache = new ConcurrentHashMap<>();
+            cacheVersion = getVersion();
         }
+        return this;
     }
 
-    @Override
-    public IValueNode getValue(String key) {
-        INode node = children.get(key);
-        if (node.getType() == NodeType.VALUE) {
-            return (IValueNode)node;
-        } else {
-            throw new UnsupportedOperationException("Not a value!");
-        }
+    public ObjectNode disableResolutionCache() {
+        resolutionCache = null;
+        return this;
     }
 
-    @Override
-    public IObjectNode deepClone() {
-        ObjectNode clone = new ObjectNode();
-        children.entrySet().forEach(child -> {
-            clone.children.put(child.getKey(), child.getValue().deepClone());
-        });
-        return clone;
+    /**
+     * Builds a flat index of every dotted path below this node, so that
+     * resolving a path takes one hash probe instead of a walk down the tree.
+     *
+     * The index is not patched in place. Any change anywhere below this
+     * node makes the next lookup rebuild the whole index, which costs a walk
+     * over the entire tree. Only enable it on trees that are loaded once and
+     * then read many times between changes; a tree that is written to
+     * between most reads is better served by the resolution cache, or by
+     * neither.
+     */
+    public ObjectNode enablePathIndex() {
+        indexed = true;
+        pathIndex = PathIndex.build(this, getVersion());
+        return this;
     }
 
-    @Override
-    public IObjectNode unset(String key) {
-        children.remove(key);
+    public ObjectNode disablePathIndex() {
+        indexed = false;
+        pathIndex = null;
         return this;
     }
 
     @Override
-    public IObjectNode set(String key, INode value) {
-        if (value == null) {
-            return unset(key);
+    public INode get(String key) {
+        INode child = children.get(key);
+        if (child == null || !child.isFrozen() || isFrozen()) {
+            return child;
         }
 
-        children.put(key, value);
-        return this;
-    }
-    
-    public static <T> ObjectNode from(T data, IObjectSerializer<T> serializer) {
-        ObjectNode node = new ObjectNode();
-        serializer.Serialize(node, data);
-        return node;
-    }
-
-    public static ObjectNode from(ISerializableObject data) {
-        ObjectNode node = new ObjectNode();
-        data.Serialize(node);
-        return node;
-    }
-    
-    @Override
-    public <T> T to(T instance, IObjectDeserializer<T> deserializer) {
-        deserializer.Deserialize(instance, this);
-        return instance;
+        INode copy = thaw(child);
+        if (copy != child) {
+            writableChildren().put(key, copy);
+            adopt(copy);
+        }
+        return copy;
     }
 
     @Override
-    public <T extends IDeserializableObject> T to(T instance) {
-        instance.Deserialize(this);
-        return instance;
+    public Set<String> keys() {
+        return Collections.unmodifiableSet(children.keySet());
     }
 
     @Override
-    public IObjectNode set(String key, byte value) {
-        return set(key, new ValueNode(value));
-    }
+    public INode resolveNode(String path) {
+        PathIndex index = validIndex();
+        int slot = index == null ? -1 : index.find(path);
+        if (slot >= 0) {
+            return index.node(slot);
+        }
 
-    @Override
-    public IObjectNode set(String key, short value) {
-        return set(key, new ValueNode(value));
-    }
+        if (resolutionCache == null) {
+            return IObjectNode.super.resolveNode(path);
+        }
 
-    @Override
-    public IObjectNode set(String key, int value) {
-        return set(key, new ValueNode(value));
+        Map<String, INode> cache = validCache();
+        INode node = cache.get(path);
+        if (node == null) {
+            node = IObjectNode.super.resolveNode(path);
+            if (node != null) {
+                cache.put(path, node);
+            }
+        }
+        return node;
     }
 
     @Override
-    public IObjectNode set(String key, long value) {
-        return set(key, new ValueNode(value));
-    }
+    public INode resolveNode(ConfPath path) {
+        PathIndex index = validIndex();
+        int slot = index == null ? -1 : index.find(path.toString());
+        if (slot >= 0) {
+            return index.node(slot);
+        }
 
-    @Override
-    public IObjectNode set(String key, float value) {
-        return set(key, new ValueNode(value));
-    }
+        if (resolutionCache == null) {
+            return IObjectNode.super.resolveNode(path);
+        }
 
-    @Override
-    public IObjectNode set(String key, double value) {
-        return set(key, new ValueNode(value));
+        Map<String, INode> cache = validCache();
+        INode node = cache.get(path.toString());
+        if (node == null) {
+            node = IObjectNode.super.resolveNode(path);
+            if (node != null) {
+                cache.put(path.toString(), node);
+            }
+        }
+        return node;
     }
 
-    @Override
-    public IObjectNode set(String key, String value) {
-        return set(key, new ValueNode(value));
-    }
+    private PathIndex validIndex() {
+        if (!indexed) {
+            return null;
+        }
 
-    @Override
-    public IObjectNode set(String key, boolean value) {
-        return set(key, new ValueNode(value));
+        PathIndex index = pathIndex;
+        if (index == null || index.version != getVersion()) {
+            index = PathIndex.build(this, getVersion());
+            pathIndex = index;
+        }
+        return index;
     }
 
-    @Override
-    public IObjectNode set(String key, char value) {
-        return set(key, new ValueNode(value));
+    private Map<String, INode> validCache() {
+        if (cacheVersion != getVersion()) {
+            resolutionCache.clear();
+            cacheVersion = getVersion();
+        }
+        return resolutionCache;
     }
 
     @Override
-    public byte getByte(String key) {
-        return getValue(key).byteValue();
+    public IObjectNode deepClone() {
+        ObjectNode clone = new ObjectNode(strategy, children.size());
+        children.entrySet().forEach(child -> {
+            INode childClone = child.getValue().deepClone();
+            clone.children.put(child.getKey(), childClone);
+            clone.adopt(childClone);
+        });
+        return clone;
     }
 
     @Override
-    public short getShort(String key) {
-        return getValue(key).shortValue();
-    }
+    public IObjectNode freeze() {
+        if (isFrozen()) {
+            return this;
+        }
 
-    @Override
-    public int getInt(String key) {
-        return getValue(key).intValue();
-    }
+        if (snapshot != null && snapshotVersion == getVersion()) {
+            return snapshot;
+        }
 
-    @Override
-    public long getLong(String key) {
-        return getValue(key).longValue();
-    }
+        boolean frozeAny = false;
+        Map<String, INode> frozen = children;
+        for (Map.Entry<String, INode> child : children.entrySet()) {
+            if (child.getValue().isFrozen()) {
+                continue;
+            }
+            if (freezeInPlace(this, child.getValue())) {
+                frozeAny = true;
+                continue;
+            }
+
+            if (frozen == children) {
+                frozen = copyChildren();
+            }
+            frozen.put(child.getKey(), child.getValue().freeze());
+        }
 
-    @Override
-    public float getFloat(String key) {
-        return getValue(key).floatValue();
-    }
+        ObjectNode copy = new ObjectNode(strategy, frozen);
+        copy.markFrozen();
+        copy.indexed = indexed;
+        if (frozeAny) {
+            changed();
+        }
 
-    @Override
-    public double getDouble(String key) {
-        return getValue(key).doubleValue();
+        // Children that aren't frozen in place can change without telling
+        // this node, so a snapshot holding copies of them isn't kept.
+        if (frozen == children) {
+            shared = true;
+            snapshot = copy;
+            snapshotVersion = getVersion();
+        }
+        return copy;
     }
 
-    @Override
-    public boolean getBoolean(String key) {
-        return getValue(key).booleanValue();
-    }
+    void freezeInPlace(TrackedNode from) {
+        Map<String, INode> frozen = children;
+        for (Map.Entry<String, INode> child : children.entrySet()) {
+            if (child.getValue().isFrozen() || freezeInPlace(this, child.getValue())) {
+                continue;
+            }
 
-    @Override
-    public char getChar(String key) {
-        return getValue(key).charValue();
-    }
+            if (frozen == children) {
+                frozen = copyChildren();
+            }
+            frozen.put(child.getKey(), child.getValue().freeze());
+        }
 
-    @Override
-    public String getString(String key) {
-        return getValue(key).stringValue();
-    }
-    
-    @Override
-    public IListNode resolveList(String path) {
-        String[] parts = path.split("\\.");
-        Deque<String> list = new LinkedList<>(Arrays.asList(parts));
-        String key = list.removeLast();
-        IObjectNode node = resolve(list);
-        return node.getList(key);
+        children = frozen;
+        shared = false;
+        snapshot = null;
+        freezeHere(from);
     }
 
-    @Override
-    public byte resolveByte(String path) {
-        String[] parts = path.split("\\.");
-        Deque<String> list = new LinkedList<>(Arrays.asList(parts));
-        String key = list.removeLast();
-        IObjectNode node = resolve(list);
-        return node.getByte(key);
+    ObjectNode thaw() {
+        ObjectNode copy = new ObjectNode(strategy, children);
+        copy.shared = true;
+        copy.snapshot = this;
+        copy.indexed = indexed;
+        if (resolutionCache != null) {
+            copy.enableResolutionCache();
+        }
+        return copy;
     }
 
-    @Override
-    public short resolveShort(String path) {
-        String[] parts = path.split("\\.");
-        Deque<String> list = new LinkedList<>(Arrays.asList(parts));
-        String key = list.removeLast();
-        IObjectNode node = resolve(list);
-        return node.getShort(key);
+    private Map<String, INode> copyChildren() {
+        Map<String, INode> copy = strategy.createMap(children.size());
+        copy.putAll(children);
+        return copy;
     }
 
-    @Override
-    public int resolveInt(String path) {
-        String[] parts = path.split("\\.");
-        Deque<String> list = new LinkedList<>(Arrays.asList(parts));
-        String key = list.removeLast();
-        IObjectNode node = resolve(list);
-        return node.getInt(key);
+    private Map<String, INode> writableChildren() {
+        if (shared) {
+            children = copyChildren();
+            shared = false;
+        }
+        snapshot = null;
+        return children;
     }
 
     @Override
-    public long resolveLong(String path) {
-        String[] parts = path.split("\\.");
-        Deque<String> list = new LinkedList<>(Arrays.asList(parts));
-        String key = list.removeLast();
-        IObjectNode node = resolve(list);
-        return node.getLong(key);
+    public IObjectNode unset(String key) {
+        ensureMutable();
+        if (!children.containsKey(key)) {
+            return this;
+        }
+        INode old = writableChildren().remove(key);
+        if (old != null) {
+            release(old);
+            changed();
+        }
+        return this;
     }
 
     @Override
-    public float resolveFloat(String path) {
-        String[] parts = path.split("\\.");
-        Deque<String> list = new LinkedList<>(Arrays.asList(parts));
-        String key = list.removeLast();
-        IObjectNode node = resolve(list);
-        return node.getFloat(key);
-    }
+    public IObjectNode set(String key, INode value) {
+        if (value == null) {
+            return unset(key);
+        }
 
-    @Override
-    public double resolveDouble(String path) {
-        String[] parts = path.split("\\.");
-        Deque<String> list = new LinkedList<>(Arrays.asList(parts));
-        String key = list.removeLast();
-        IObjectNode node = resolve(list);
-        return node.getDouble(key);
+        ensureMutable();
+        INode old = writableChildren().put(key, value);
+        if (old == null) {
+            children = strategy.grow(children);
+        }
+        if (old != value) {
+            release(old);
+            adopt(value);
+        }
+        changed();
+        return this;
     }
-
-    @Override
-    public char resolveChar(String path) {
-        String[] parts = path.split("\\.");
-        Deque<String> list = new LinkedList<>(Arrays.asList(parts));
-        String key = list.removeLast();
-        IObjectNode node = resolve(list);
-        return node.getChar(key);
+    
+    public static <T> ObjectNode from(T data, IObjectSerializer<T> serializer) {
+        ObjectNode node = new ObjectNode();
+        serializer.Serialize(node, data);
+        return node;
     }
 
-    @Override
-    public String resolveString(String path) {
-        String[] parts = path.split("\\.");
-        Deque<String> list = new LinkedList<>(Arrays.asList(parts));
-        String key = list.removeLast();
-        IObjectNode node = resolve(list);
-        return node.getString(key);
+    public static ObjectNode from(ISerializableObject data) {
+        ObjectNode node = new ObjectNode();
+        data.Serialize(node);
+        return node;
     }
 }
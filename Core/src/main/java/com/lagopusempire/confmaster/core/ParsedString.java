@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+/**
+ * The numeric readings of a string value, worked out once so repeated typed
+ * reads of a string-backed {@link ValueNode} never re-parse or throw.
+ *
+ * @author Foomf
+ */
+final class ParsedString {
+    final boolean integral;
+    final long longValue;
+    final boolean floating;
+    final double doubleValue;
+    final float floatValue;
+
+    ParsedString(String string) {
+        boolean isIntegral = false;
+        long asLong = 0;
+        try {
+            asLong = Long.decode(string);
+            isIntegral = true;
+        } catch (NumberFormatException ignored) {
+        }
+
+        boolean isFloating = false;
+        double asDouble = 0;
+        float asFloat = 0;
+        try {
+            asDouble = Double.parseDouble(string);
+            asFloat = Float.parseFloat(string);
+            isFloating = true;
+        } catch (NumberFormatException ignored) {
+        }
+
+        integral = isIntegral;
+        longValue = asLong;
+        floating = isFloating;
+        doubleValue = asDouble;
+        floatValue = asFloat;
+    }
+
+    boolean fits(long min, long max) {
+        return integral && longValue >= min && longValue <= max;
+    }
+}
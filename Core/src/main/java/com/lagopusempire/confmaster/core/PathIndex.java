@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Every dotted path under an object, flattened into one open addressing
+ * table so a lookup is a single probe. An index maps paths to nodes as they
+ * were at one version; it is never changed, only replaced, and building one
+ * walks the whole tree. Values are still read from their nodes, since a
+ * value changed in place doesn't bump any version.
+ *
+ * Keys with a dot in them can't be reached by a dotted path, so they are
+ * left out, and so is anything below a node that doesn't track changes or
+ * a lazy node that hasn't loaded yet. Paths that are not in the index are
+ * simply resolved the slow way.
+ *
+ * @author Foomf
+ */
+final class PathIndex {
+    final long version;
+    private final int mask;
+    private final int[] hashes;
+    private final String[] paths;
+    private final INode[] nodes;
+
+    private PathIndex(long version, List<String> paths, List<INode> nodes) {
+        int capacity = Integer.highestOneBit(Math.max(paths.size(), 1) * 2 - 1) << 1;
+        this.version = version;
+        this.mask = capacity - 1;
+        this.hashes = new int[capacity];
+        this.paths = new String[capacity];
+        this.nodes = new INode[capacity];
+
+        for (int ii = 0; ii < paths.size(); ++ii) {
+            String path = paths.get(ii);
+            int hash = hash(path);
+            int slot = hash & mask;
+            while (this.paths[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+
+            this.hashes[slot] = hash;
+            this.paths[slot] = path;
+            this.nodes[slot] = nodes.get(ii);
+        }
+    }
+
+    static PathIndex build(IObjectNode root, long version) {
+        List<String> paths = new ArrayList<>();
+        List<INode> nodes = new ArrayList<>();
+        collect(root, "", paths, nodes);
+        return new PathIndex(version, paths, nodes);
+    }
+
+    private static void collect(IObjectNode object, String prefix, List<String> paths, List<INode> nodes) {
+        for (String key : object.keys()) {
+            if (key.indexOf('.') != -1) {
+                continue;
+            }
+
+            String path = prefix + key;
+            INode node = object.get(key);
+            paths.add(path);
+            nodes.add(node);
+            if (node.getType() == NodeType.OBJECT && node.getVersion() >= 0
+                    && !(node instanceof LazyObjectNode && !((LazyObjectNode)node).isLoaded())) {
+                collect((IObjectNode)node, path + ".", paths, nodes);
+            }
+        }
+    }
+
+    private static int hash(String path) {
+        int hash = path.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @return the slot holding the path, or -1 if it isn't indexed.
+     */
+    int find(String path) {
+        int hash = hash(path);
+        int slot = hash & mask;
+        while (paths[slot] != null) {
+            if (hashes[slot] == hash && paths[slot].equals(path)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    INode node(int slot) {
+        return nodes[slot];
+    }
+}
@@ -0,0 +1,349 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable hash array mapped trie from keys to nodes. Every update returns
+ * a new map that shares all untouched branches with the old one, so an
+ * update only copies the O(log32 n) nodes on the path to the changed key.
+ *
+ * @author Foomf
+ */
+final class PersistentMap implements Iterable<String> {
+    static final PersistentMap EMPTY = new PersistentMap(BitmapNode.EMPTY, 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final TrieNode root;
+    private final int size;
+
+    private PersistentMap(TrieNode root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    INode get(String key) {
+        return root.find(0, key.hashCode(), key);
+    }
+
+    PersistentMap put(String key, INode value) {
+        boolean[] added = new boolean[1];
+        TrieNode newRoot = root.put(0, key.hashCode(), key, value, added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentMap(newRoot, added[0] ? size + 1 : size);
+    }
+
+    PersistentMap remove(String key) {
+        TrieNode newRoot = root.remove(0, key.hashCode(), key);
+        if (newRoot == root) {
+            return this;
+        }
+        if (newRoot == null) {
+            return EMPTY;
+        }
+        return new PersistentMap(newRoot, size - 1);
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new KeyIterator(root);
+    }
+
+    private abstract static class TrieNode {
+        // Entries are stored as key/value pairs in a flat array. A null key
+        // means the value slot holds a child TrieNode.
+        final Object[] array;
+
+        TrieNode(Object[] array) {
+            this.array = array;
+        }
+
+        abstract INode find(int shift, int hash, String key);
+
+        abstract TrieNode put(int shift, int hash, String key, INode value, boolean[] added);
+
+        abstract TrieNode remove(int shift, int hash, String key);
+    }
+
+    private static final class BitmapNode extends TrieNode {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+
+        BitmapNode(int bitmap, Object[] array) {
+            super(array);
+            this.bitmap = bitmap;
+        }
+
+        private static int bit(int shift, int hash) {
+            return 1 << ((hash >>> shift) & MASK);
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        INode find(int shift, int hash, String key) {
+            int bit = bit(shift, hash);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+
+            int ii = 2 * index(bit);
+            Object k = array[ii];
+            Object v = array[ii + 1];
+            if (k == null) {
+                return ((TrieNode)v).find(shift + BITS, hash, key);
+            }
+            return key.equals(k) ? (INode)v : null;
+        }
+
+        @Override
+        TrieNode put(int shift, int hash, String key, INode value, boolean[] added) {
+            int bit = bit(shift, hash);
+            int ii = 2 * index(bit);
+
+            if ((bitmap & bit) == 0) {
+                Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, ii);
+                newArray[ii] = key;
+                newArray[ii + 1] = value;
+                System.arraycopy(array, ii, newArray, ii + 2, array.length - ii);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, newArray);
+            }
+
+            Object k = array[ii];
+            Object v = array[ii + 1];
+            if (k == null) {
+                TrieNode child = (TrieNode)v;
+                TrieNode newChild = child.put(shift + BITS, hash, key, value, added);
+                return newChild == child ? this : with(ii + 1, newChild);
+            }
+
+            if (key.equals(k)) {
+                return v == value ? this : with(ii + 1, value);
+            }
+
+            added[0] = true;
+            TrieNode split = pair(shift + BITS, (String)k, (INode)v, hash, key, value);
+            Object[] newArray = array.clone();
+            newArray[ii] = null;
+            newArray[ii + 1] = split;
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        @Override
+        TrieNode remove(int shift, int hash, String key) {
+            int bit = bit(shift, hash);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+
+            int ii = 2 * index(bit);
+            Object k = array[ii];
+            Object v = array[ii + 1];
+            if (k == null) {
+                TrieNode child = (TrieNode)v;
+                TrieNode newChild = child.remove(shift + BITS, hash, key);
+                if (newChild == child) {
+                    return this;
+                }
+                if (newChild != null && newChild.array.length == 2 && newChild.array[0] != null) {
+                    // A branch left holding one entry is pulled back up into
+                    // this node, so removals shrink the trie again.
+                    Object[] newArray = array.clone();
+                    newArray[ii] = newChild.array[0];
+                    newArray[ii + 1] = newChild.array[1];
+                    return new BitmapNode(bitmap, newArray);
+                }
+                if (newChild != null) {
+                    return with(ii + 1, newChild);
+                }
+            } else if (!key.equals(k)) {
+                return this;
+            }
+
+            if (bitmap == bit) {
+                return null;
+            }
+
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, ii);
+            System.arraycopy(array, ii + 2, newArray, ii, array.length - ii - 2);
+            return new BitmapNode(bitmap ^ bit, newArray);
+        }
+
+        private BitmapNode with(int index, Object value) {
+            Object[] newArray = array.clone();
+            newArray[index] = value;
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        private static TrieNode pair(int shift, String key1, INode value1,
+                int hash2, String key2, INode value2) {
+            int hash1 = key1.hashCode();
+            if (hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+            }
+
+            boolean[] ignored = new boolean[1];
+            return EMPTY
+                    .put(shift, hash1, key1, value1, ignored)
+                    .put(shift, hash2, key2, value2, ignored);
+        }
+    }
+
+    private static final class CollisionNode extends TrieNode {
+        private final int hash;
+
+        CollisionNode(int hash, Object[] array) {
+            super(array);
+            this.hash = hash;
+        }
+
+        private int indexOf(String key) {
+            for (int ii = 0; ii < array.length; ii += 2) {
+                if (key.equals(array[ii])) {
+                    return ii;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        INode find(int shift, int hash, String key) {
+            if (hash != this.hash) {
+                return null;
+            }
+            int ii = indexOf(key);
+            return ii == -1 ? null : (INode)array[ii + 1];
+        }
+
+        @Override
+        TrieNode put(int shift, int hash, String key, INode value, boolean[] added) {
+            if (hash != this.hash) {
+                // Push this bucket one level down next to the new key.
+                int bit = 1 << ((this.hash >>> shift) & MASK);
+                BitmapNode wrapper = new BitmapNode(bit, new Object[] {null, this});
+                return wrapper.put(shift, hash, key, value, added);
+            }
+
+            int ii = indexOf(key);
+            if (ii != -1) {
+                if (array[ii + 1] == value) {
+                    return this;
+                }
+                Object[] newArray = array.clone();
+                newArray[ii + 1] = value;
+                return new CollisionNode(hash, newArray);
+            }
+
+            Object[] newArray = new Object[array.length + 2];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            added[0] = true;
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        TrieNode remove(int shift, int hash, String key) {
+            if (hash != this.hash) {
+                return this;
+            }
+
+            int ii = indexOf(key);
+            if (ii == -1) {
+                return this;
+            }
+            if (array.length == 2) {
+                return null;
+            }
+
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, ii);
+            System.arraycopy(array, ii + 2, newArray, ii, array.length - ii - 2);
+            return new CollisionNode(hash, newArray);
+        }
+    }
+
+    private static final class KeyIterator implements Iterator<String> {
+        private final Deque<TrieNode> nodes = new ArrayDeque<>();
+        private final Deque<Integer> positions = new ArrayDeque<>();
+        private String next;
+
+        KeyIterator(TrieNode root) {
+            nodes.push(root);
+            positions.push(0);
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (!nodes.isEmpty()) {
+                TrieNode node = nodes.peek();
+                int ii = positions.pop();
+                if (ii >= node.array.length) {
+                    nodes.pop();
+                    continue;
+                }
+
+                positions.push(ii + 2);
+                Object k = node.array[ii];
+                if (k == null) {
+                    nodes.push((TrieNode)node.array[ii + 1]);
+                    positions.push(0);
+                } else {
+                    next = (String)k;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            String key = next;
+            advance();
+            return key;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * An immutable object node backed by a hash array mapped trie. Instead of
+ * changing the node in place, {@link #set(String, INode)} and
+ * {@link #unset(String)} return a new version that shares everything but the
+ * changed path with the old one. Children are frozen on the way in so that
+ * no two versions ever share mutable state, and object children are turned
+ * into persistent nodes once, when they are stored.
+ *
+ * @author Foomf
+ */
+public final class PersistentObjectNode implements IObjectNode {
+    public static final PersistentObjectNode EMPTY
+            = new PersistentObjectNode(PersistentMap.EMPTY);
+
+    private final PersistentMap children;
+
+    private PersistentObjectNode(PersistentMap children) {
+        this.children = children;
+    }
+
+    public static PersistentObjectNode copyOf(IObjectNode node) {
+        if (node instanceof PersistentObjectNode) {
+            return (PersistentObjectNode)node;
+        }
+
+        PersistentMap map = PersistentMap.EMPTY;
+        for (String key : node.keys()) {
+            map = map.put(key, persist(node.get(key)));
+        }
+        return new PersistentObjectNode(map);
+    }
+
+    // Object children are always stored as persistent nodes, so that setIn
+    // can copy just the path down to the change instead of whole subtrees.
+    private static INode persist(INode child) {
+        if (child.getType() == NodeType.OBJECT) {
+            return copyOf((IObjectNode)child);
+        }
+        return child.freeze();
+    }
+
+    public int size() {
+        return children.size();
+    }
+
+    @Override
+    public Set<String> keys() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return children.iterator();
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return key instanceof String && children.get((String)key) != null;
+            }
+
+            @Override
+            public int size() {
+                return children.size();
+            }
+        };
+    }
+
+    @Override
+    public INode get(String key) {
+        return children.get(key);
+    }
+
+    @Override
+    public PersistentObjectNode unset(String key) {
+        PersistentMap map = children.remove(key);
+        return map == children ? this : new PersistentObjectNode(map);
+    }
+
+    @Override
+    public PersistentObjectNode set(String key, INode value) {
+        if (value == null) {
+            return unset(key);
+        }
+
+        PersistentMap map = children.put(key, persist(value));
+        return map == children ? this : new PersistentObjectNode(map);
+    }
+
+    private PersistentObjectNode put(String key, ValueNode value) {
+        // The node was made just for this call, so it can be frozen in place
+        // instead of being copied.
+        value.markFrozen();
+        return new PersistentObjectNode(children.put(key, value));
+    }
+
+    @Override
+    public PersistentObjectNode set(String key, byte value) {
+        return put(key, new ValueNode(value));
+    }
+
+    @Override
+    public PersistentObjectNode set(String key, short value) {
+        return put(key, new ValueNode(value));
+    }
+
+    @Override
+    public PersistentObjectNode set(String key, int value) {
+        return put(key, new ValueNode(value));
+    }
+
+    @Override
+    public PersistentObjectNode set(String key, long value) {
+        return put(key, new ValueNode(value));
+    }
+
+    @Override
+    public PersistentObjectNode set(String key, float value) {
+        return put(key, new ValueNode(value));
+    }
+
+    @Override
+    public PersistentObjectNode set(String key, double value) {
+        return put(key, new ValueNode(value));
+    }
+
+    @Override
+    public PersistentObjectNode set(String key, String value) {
+        return put(key, new ValueNode(value));
+    }
+
+    @Override
+    public PersistentObjectNode set(String key, boolean value) {
+        return put(key, new ValueNode(value));
+    }
+
+    @Override
+    public PersistentObjectNode set(String key, char value) {
+        return put(key, new ValueNode(value));
+    }
+
+    public PersistentObjectNode setIn(ConfPath path, INode value) {
+        return setIn(path, 0, value);
+    }
+
+    private PersistentObjectNode setIn(ConfPath path, int depth, INode value) {
+        String key = path.segment(depth);
+        if (depth == path.length() - 1) {
+            return set(key, value);
+        }
+
+        PersistentObjectNode next = children.get(key) == null
+                ? EMPTY
+                : (PersistentObjectNode)getObject(key);
+        return set(key, next.setIn(path, depth + 1, value));
+    }
+
+    @Override
+    public ObjectNode deepClone() {
+        ObjectNode clone = new ObjectNode();
+        for (String key : children) {
+            clone.set(key, children.get(key).deepClone());
+        }
+        return clone;
+    }
+
+    @Override
+    public PersistentObjectNode freeze() {
+        return this;
+    }
+
+    @Override
+    public boolean isFrozen() {
+        return true;
+    }
+
+    // A persistent node never changes, only ever gets replaced.
+    @Override
+    public long getVersion() {
+        return 0;
+    }
+}
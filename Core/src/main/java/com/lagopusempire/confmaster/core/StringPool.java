@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+/**
+ * Hands out one shared instance for every distinct string it is given, so
+ * that trees with many repeated keys or values keep a single copy of each.
+ * The pool is a fixed table indexed by hash, holding one string per slot. A
+ * new string only pushes out the one in its own slot, so a pool that sees
+ * more distinct strings than it has room for keeps most of them, and never
+ * holds on to more than its limit.
+ *
+ * A pool can be shared between threads. Two threads interning at once can
+ * at worst both miss and keep their own copy.
+ *
+ * @author Foomf
+ */
+public final class StringPool {
+    public static final int DEFAULT_LIMIT = 16384;
+
+    private final String[] strings;
+
+    public StringPool() {
+        this(DEFAULT_LIMIT);
+    }
+
+    /**
+     * @param limit how many strings the pool holds at most, rounded up to a
+     * power of two.
+     */
+    public StringPool(int limit) {
+        strings = new String[Integer.highestOneBit(Math.max(limit, 2) - 1) << 1];
+    }
+
+    public String intern(String string) {
+        if (string == null) {
+            return null;
+        }
+
+        int hash = string.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & (strings.length - 1);
+        String pooled = strings[slot];
+        if (pooled != null && pooled.equals(string)) {
+            return pooled;
+        }
+
+        strings[slot] = string;
+        return string;
+    }
+
+    public int size() {
+        int size = 0;
+        for (String string : strings) {
+            if (string != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (int ii = 0; ii < strings.length; ++ii) {
+            strings[ii] = null;
+        }
+    }
+}
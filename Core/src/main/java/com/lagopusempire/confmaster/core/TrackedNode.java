@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Base for objects and lists, which remember which node they were attached
+ * to, so that a change to their children bumps the version of every node
+ * above them. Caches built on top of a node compare versions to find out
+ * when its shape went stale. Value nodes aren't tracked, so a cache must
+ * still read values through their nodes.
+ * A node can be held in several places at once, for instance under two keys
+ * while it is being renamed, or by two trees that share it. Every place
+ * holding it is counted, and a change reaches all of them. Those links are
+ * weak, so a tree that is dropped without unsetting the shared node is not
+ * kept alive by it, and stops being bumped once it has been collected.
+ *
+ * Frozen nodes are immutable snapshots. They may be shared by any number of
+ * parents, so they never track one. Objects, lists and values are frozen in
+ * place: the snapshot and the live tree share them, and a live object or
+ * list hands out a writable copy of a frozen child the first time it is
+ * read, so only the path that is touched again gets copied.
+ *
+ * @author Foomf
+ */
+abstract class TrackedNode {
+    // The one place holding this node. Once a second place takes it, every
+    // holder moves to parents instead, and is listed once for each place it
+    // holds the node, so releasing one keeps the rest.
+    private TrackedNode parent;
+    private List<WeakReference<TrackedNode>> parents;
+    private long version;
+    private boolean frozen;
+
+    public final long getVersion() {
+        return version;
+    }
+
+    public final boolean isFrozen() {
+        return frozen;
+    }
+
+    final void markFrozen() {
+        frozen = true;
+    }
+
+    final void ensureMutable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("This node is frozen!");
+        }
+    }
+
+    final void adopt(INode child) {
+        if (!frozen && child instanceof TrackedNode
+                && !((TrackedNode)child).frozen) {
+            ((TrackedNode)child).addParent(this);
+        }
+    }
+
+    final void release(INode child) {
+        if (child instanceof TrackedNode) {
+            ((TrackedNode)child).removeParent(this);
+        }
+    }
+
+    private void addParent(TrackedNode node) {
+        if (parent == null && parents == null) {
+            parent = node;
+            return;
+        }
+
+        if (parents == null) {
+            parents = new ArrayList<>(2);
+            parents.add(new WeakReference<>(parent));
+            parent = null;
+        }
+        parents.add(new WeakReference<>(node));
+    }
+
+    private void removeParent(TrackedNode node) {
+        if (parent == node) {
+            parent = null;
+            return;
+        }
+        if (parents == null) {
+            return;
+        }
+
+        boolean removed = false;
+        for (Iterator<WeakReference<TrackedNode>> it = parents.iterator(); it.hasNext();) {
+            TrackedNode holder = it.next().get();
+            if (holder == null || (holder == node && !removed)) {
+                removed |= holder == node;
+                it.remove();
+            }
+        }
+        if (parents.size() == 1) {
+            parent = parents.get(0).get();
+            parents = null;
+        } else if (parents.isEmpty()) {
+            parents = null;
+        }
+    }
+
+    /**
+     * Freezes this node where it stands instead of copying it. Whoever else
+     * holds it may have handed it out as writable, so they are bumped.
+     */
+    final void freezeHere(TrackedNode from) {
+        frozen = true;
+        if (parent != null && parent != from) {
+            parent.changed();
+        }
+        if (parents != null) {
+            for (WeakReference<TrackedNode> reference : parents) {
+                TrackedNode holder = reference.get();
+                if (holder != null && holder != from) {
+                    holder.changed();
+                }
+            }
+        }
+        parent = null;
+        parents = null;
+    }
+
+    /**
+     * Freezes a child of the given node in place if it is a kind of node
+     * that can be, and tells whether it was.
+     */
+    static boolean freezeInPlace(TrackedNode holder, INode child) {
+        if (child instanceof ValueNode) {
+            ((ValueNode)child).markFrozen();
+            return true;
+        }
+        if (child instanceof ObjectNode) {
+            ((ObjectNode)child).freezeInPlace(holder);
+            return true;
+        }
+        if (child instanceof ListNode) {
+            ((ListNode)child).freezeInPlace(holder);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return a writable node sharing what it can with the frozen child, or
+     * the child itself if it isn't a kind that is thawed.
+     */
+    static INode thaw(INode child) {
+        if (child instanceof ValueNode) {
+            return ((ValueNode)child).deepClone();
+        }
+        if (child instanceof ObjectNode) {
+            return ((ObjectNode)child).thaw();
+        }
+        if (child instanceof ListNode) {
+            return ((ListNode)child).thaw();
+        }
+        return child;
+    }
+
+    final void changed() {
+        for (TrackedNode node = this; node != null; node = node.parent) {
+            node.version++;
+            if (node.parents != null) {
+                for (Iterator<WeakReference<TrackedNode>> it = node.parents.iterator(); it.hasNext();) {
+                    TrackedNode holder = it.next().get();
+                    if (holder == null) {
+                        it.remove();
+                    } else {
+                        holder.changed();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -19,13 +19,28 @@
  */
 package com.lagopusempire.confmaster.core;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
 /**
+ * A single value. Value nodes are kept as small as possible since a tree
+ * can hold millions of them: they don't know which node holds them, and
+ * changing one in place doesn't bump any version. Replacing a value through
+ * its object or list does.
  *
  * @author Foomf
  */
 public final class ValueNode implements IValueNode {
+    private ValueType type = ValueType.NULL;
+    // Integral values are stored as is, floating point values as the raw
+    // bits of a double. Booleans are 1 or 0, and read back as those numbers
+    // everywhere but booleanValue(). Big integers keep their low 64 bits
+    // here next to the full value.
+    private long bits;
     private String string;
-    private Number number;
+    private BigInteger big;
+    private ParsedString parsed;
+    private boolean frozen;
 
     public ValueNode() {
     }
@@ -66,75 +81,182 @@ public final class ValueNode implements IValueNode {
         set(value);
     }
 
+    public ValueNode(BigInteger value) {
+        set(value);
+    }
+
+    @Override
+    public ValueType getValueType() {
+        return type;
+    }
+
     @Override
     public Number getNumber() {
-        return number;
+        switch (type) {
+            case BYTE:
+                return (byte)bits;
+            case SHORT:
+                return (short)bits;
+            case INT:
+            case BOOLEAN:
+                return (int)bits;
+            case LONG:
+                return bits;
+            case FLOAT:
+                return (float)asDouble();
+            case DOUBLE:
+                return asDouble();
+            case BIG_INTEGER:
+                return big;
+            default:
+                return null;
+        }
     }
 
     @Override
     public ValueNode deepClone() {
         ValueNode clone = new ValueNode();
+        clone.type = type;
+        clone.bits = bits;
         clone.string = string;
-        clone.number = number;
+        clone.big = big;
+        clone.parsed = parsed;
         return clone;
     }
 
+    private ParsedString parsed() {
+        if (parsed == null) {
+            parsed = new ParsedString(string);
+        }
+        return parsed;
+    }
+
+    @Override
+    public ValueNode freeze() {
+        if (frozen) {
+            return this;
+        }
+
+        ValueNode copy = deepClone();
+        copy.frozen = true;
+        return copy;
+    }
+
+    @Override
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    void markFrozen() {
+        frozen = true;
+    }
+
+    private void ensureMutable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("This node is frozen!");
+        }
+    }
+
+    private double asDouble() {
+        return Double.longBitsToDouble(bits);
+    }
+
+    private void setIntegral(ValueType type, long value) {
+        ensureMutable();
+        this.type = type;
+        bits = value;
+        string = null;
+        big = null;
+        parsed = null;
+    }
+
+    private void setFloating(ValueType type, double value) {
+        ensureMutable();
+        this.type = type;
+        bits = Double.doubleToRawLongBits(value);
+        string = null;
+        big = null;
+        parsed = null;
+    }
+
     @Override
     public void set(byte value) {
-        number = value;
+        setIntegral(ValueType.BYTE, value);
     }
 
     @Override
     public void set(short value) {
-        number = value;
+        setIntegral(ValueType.SHORT, value);
     }
 
     @Override
     public void set(int value) {
-        number = value;
+        setIntegral(ValueType.INT, value);
     }
 
     @Override
     public void set(long value) {
-        number = value;
+        setIntegral(ValueType.LONG, value);
     }
 
     @Override
     public void set(float value) {
-        number = value;
+        setFloating(ValueType.FLOAT, value);
     }
 
     @Override
     public void set(double value) {
-        number = value;
+        setFloating(ValueType.DOUBLE, value);
     }
 
     @Override
     public void set(String value) {
+        ensureMutable();
+        type = value == null ? ValueType.NULL : ValueType.STRING;
+        bits = 0;
         string = value;
+        big = null;
+        parsed = null;
     }
 
     @Override
     public void set(boolean value) {
-        number = value ? 1 : 0;
+        setIntegral(ValueType.BOOLEAN, value ? 1 : 0);
     }
 
     @Override
     public void set(char value) {
-        number = (byte)value;
+        setIntegral(ValueType.BYTE, (byte)value);
     }
 
     @Override
-    public byte byteValue() {
-        if (number != null) {
-            return number.byteValue();
-        }
+    public void set(BigInteger value) {
+        ensureMutable();
+        type = value == null ? ValueType.NULL : ValueType.BIG_INTEGER;
+        bits = value == null ? 0 : value.longValue();
+        string = null;
+        big = value;
+        parsed = null;
+    }
 
-        if (string != null) {
-            try {
-                return Byte.decode(string);
-            } catch (NumberFormatException ignored) {
-            }
+    @Override
+    public byte byteValue() {
+        switch (type) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case BOOLEAN:
+            case BIG_INTEGER:
+                return (byte)bits;
+            case FLOAT:
+            case DOUBLE:
+                return (byte)asDouble();
+            case STRING:
+                if (parsed().fits(Byte.MIN_VALUE, Byte.MAX_VALUE)) {
+                    return (byte)parsed.longValue;
+                }
+                break;
         }
 
         throw new IllegalStateException("This node is not a byte!");
@@ -142,15 +264,22 @@ public final class ValueNode implements IValueNode {
 
     @Override
     public short shortValue() {
-        if (number != null) {
-            return number.shortValue();
-        }
-
-        if (string != null) {
-            try {
-                return Short.decode(string);
-            } catch (NumberFormatException ignored) {
-            }
+        switch (type) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case BOOLEAN:
+            case BIG_INTEGER:
+                return (short)bits;
+            case FLOAT:
+            case DOUBLE:
+                return (short)asDouble();
+            case STRING:
+                if (parsed().fits(Short.MIN_VALUE, Short.MAX_VALUE)) {
+                    return (short)parsed.longValue;
+                }
+                break;
         }
 
         throw new IllegalStateException("This node is not a short!");
@@ -158,15 +287,22 @@ public final class ValueNode implements IValueNode {
 
     @Override
     public int intValue() {
-        if (number != null) {
-            return number.intValue();
-        }
-
-        if (string != null) {
-            try {
-                return Integer.decode(string);
-            } catch (NumberFormatException ignored) {
-            }
+        switch (type) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case BOOLEAN:
+            case BIG_INTEGER:
+                return (int)bits;
+            case FLOAT:
+            case DOUBLE:
+                return (int)asDouble();
+            case STRING:
+                if (parsed().fits(Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+                    return (int)parsed.longValue;
+                }
+                break;
         }
 
         throw new IllegalStateException("This node is not an int!");
@@ -174,15 +310,22 @@ public final class ValueNode implements IValueNode {
 
     @Override
     public long longValue() {
-        if (number != null) {
-            return number.longValue();
-        }
-
-        if (string != null) {
-            try {
-                return Long.decode(string);
-            } catch (NumberFormatException ignored) {
-            }
+        switch (type) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case BOOLEAN:
+            case BIG_INTEGER:
+                return bits;
+            case FLOAT:
+            case DOUBLE:
+                return (long)asDouble();
+            case STRING:
+                if (parsed().integral) {
+                    return parsed.longValue;
+                }
+                break;
         }
 
         throw new IllegalStateException("This node is not a long!");
@@ -190,15 +333,23 @@ public final class ValueNode implements IValueNode {
 
     @Override
     public float floatValue() {
-        if (number != null) {
-            return number.floatValue();
-        }
-
-        if (string != null) {
-            try {
-                return Float.valueOf(string);
-            } catch (NumberFormatException ignored) {
-            }
+        switch (type) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case BOOLEAN:
+                return (float)bits;
+            case FLOAT:
+            case DOUBLE:
+                return (float)asDouble();
+            case BIG_INTEGER:
+                return big.floatValue();
+            case STRING:
+                if (parsed().floating) {
+                    return parsed.floatValue;
+                }
+                break;
         }
 
         throw new IllegalStateException("This node is not a float!");
@@ -206,15 +357,23 @@ public final class ValueNode implements IValueNode {
 
     @Override
     public double doubleValue() {
-        if (number != null) {
-            return number.doubleValue();
-        }
-
-        if (string != null) {
-            try {
-                return Double.valueOf(string);
-            } catch (NumberFormatException ignored) {
-            }
+        switch (type) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case BOOLEAN:
+                return (double)bits;
+            case FLOAT:
+            case DOUBLE:
+                return asDouble();
+            case BIG_INTEGER:
+                return big.doubleValue();
+            case STRING:
+                if (parsed().floating) {
+                    return parsed.doubleValue;
+                }
+                break;
         }
 
         throw new IllegalStateException("This node is not a double!");
@@ -222,12 +381,20 @@ public final class ValueNode implements IValueNode {
 
     @Override
     public boolean booleanValue() {
-        if (number != null) {
-            return number.byteValue() != 0;
-        }
-
-        if (string != null) {
-            return Boolean.parseBoolean(string);
+        switch (type) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+                return byteValue() != 0;
+            case BOOLEAN:
+                return bits != 0;
+            case BIG_INTEGER:
+                return big.signum() != 0;
+            case STRING:
+                return Boolean.parseBoolean(string);
         }
 
         throw new IllegalStateException("This node is not a boolean!");
@@ -235,12 +402,21 @@ public final class ValueNode implements IValueNode {
 
     @Override
     public char charValue() {
-        if (number != null) {
-            return (char)number.byteValue();
-        }
-
-        if (string != null && string.length() > 0) {
-            return string.charAt(0);
+        switch (type) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+            case BOOLEAN:
+            case BIG_INTEGER:
+                return (char)byteValue();
+            case STRING:
+                if (string.length() > 0) {
+                    return string.charAt(0);
+                }
+                break;
         }
 
         throw new IllegalStateException("This node is not a char!");
@@ -248,14 +424,54 @@ public final class ValueNode implements IValueNode {
 
     @Override
     public String stringValue() {
-        if (string != null) {
-            return string;
+        switch (type) {
+            case STRING:
+                return string;
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case BOOLEAN:
+                return Long.toString(bits);
+            case FLOAT:
+                return Float.toString((float)asDouble());
+            case DOUBLE:
+                return Double.toString(asDouble());
+            case BIG_INTEGER:
+                return big.toString();
         }
 
-        if (number != null) {
-            return number.toString();
+        throw new IllegalStateException("This node is not a string!");
+    }
+
+    @Override
+    public BigInteger bigIntegerValue() {
+        switch (type) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case BOOLEAN:
+                return BigInteger.valueOf(bits);
+            case BIG_INTEGER:
+                return big;
+            case FLOAT:
+            case DOUBLE:
+                if (Double.isFinite(asDouble())) {
+                    return BigDecimal.valueOf(asDouble()).toBigInteger();
+                }
+                break;
+            case STRING:
+                if (parsed().integral) {
+                    return BigInteger.valueOf(parsed.longValue);
+                }
+                try {
+                    return new BigInteger(string);
+                } catch (NumberFormatException ignored) {
+                }
+                break;
         }
 
-        throw new IllegalStateException("This node is not a string!");
+        throw new IllegalStateException("This node is not an integer!");
     }
 }
@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core.backend;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+/**
+ * Replaces a file in one step: the new contents go to a temp file next to
+ * the target, are synced to disk, and only then renamed into place. Readers
+ * never see a half written file, and a crash leaves either the old file or
+ * the complete new one. The directory is synced after the rename so the
+ * rename itself survives a crash. Where the file system has POSIX
+ * attributes, the new file keeps the old one's permissions and, where
+ * allowed, its owner. A file that didn't exist before gets rw-r--r--.
+ *
+ * @author Foomf
+ */
+public final class AtomicFiles {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // What a new file gets under the usual umask of 022.
+    private static final Set<PosixFilePermission> DEFAULT_PERMISSIONS = PosixFilePermissions.fromString("rw-r--r--");
+
+    public interface Body {
+        void writeTo(OutputStream output) throws IOException;
+    }
+
+    public interface TextBody {
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    private AtomicFiles() {
+    }
+
+    public static void write(Path file, Body body) throws IOException {
+        Path target = file.toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            copyOwnership(target, temp);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+                body.writeTo(output);
+                output.flush();
+                channel.force(true);
+            }
+
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            syncDirectory(target.getParent());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // The rename is only an entry in the directory, so it isn't on disk
+    // until the directory is synced too. Not every platform lets a directory
+    // be opened for that, so failing to is not an error.
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // The file itself was synced before the rename.
+        }
+    }
+
+    // The temp file is created readable by its owner only. Give it the
+    // target's mode, owner and group, so replacing a shared config doesn't
+    // change who can read it, or the default mode if there is no target yet.
+    // Only root can give a file to another user, so failing to copy the
+    // owner or group is not an error.
+    private static void copyOwnership(Path target, Path temp) throws IOException {
+        PosixFileAttributeView targetView = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+        PosixFileAttributeView tempView = Files.getFileAttributeView(temp, PosixFileAttributeView.class);
+        if (targetView == null || tempView == null) {
+            return;
+        }
+
+        PosixFileAttributes attributes;
+        try {
+            attributes = targetView.readAttributes();
+        } catch (NoSuchFileException e) {
+            tempView.setPermissions(DEFAULT_PERMISSIONS);
+            return;
+        }
+
+        try {
+            tempView.setOwner(attributes.owner());
+        } catch (IOException e) {
+            // Keep our own user.
+        }
+        try {
+            tempView.setGroup(attributes.group());
+        } catch (IOException e) {
+            // Keep our own group.
+        }
+        tempView.setPermissions(attributes.permissions());
+    }
+
+    /**
+     * Same as {@link #write(Path, Body)}, for bodies that write UTF-8 text.
+     */
+    public static void writeText(Path file, TextBody body) throws IOException {
+        write(file, output -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+            body.writeTo(writer);
+            writer.flush();
+        });
+    }
+}
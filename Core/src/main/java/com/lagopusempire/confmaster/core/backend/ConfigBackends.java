@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core.backend;
+
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.INodeFactory;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.NodeFactory;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.ServiceLoader;
+
+/**
+ * Finds the backend for a file, by its extension or else by its first few
+ * bytes, and reads or writes through it. Call sites that go through here
+ * don't need to know which formats exist.
+ *
+ * @author Foomf
+ */
+public final class ConfigBackends {
+    /**
+     * How many bytes are read ahead to detect a format.
+     */
+    public static final int HEAD_SIZE = 64;
+
+    private ConfigBackends() {
+    }
+
+    // Loaded on first use, once.
+    private static final class Installed {
+        static final List<IConfigBackend> BACKENDS = discover();
+
+        private static List<IConfigBackend> discover() {
+            List<IConfigBackend> backends = new ArrayList<>();
+            for (IConfigBackend backend : ServiceLoader.load(IConfigBackend.class)) {
+                backends.add(backend);
+            }
+            return Collections.unmodifiableList(backends);
+        }
+    }
+
+    public static List<IConfigBackend> getBackends() {
+        return Installed.BACKENDS;
+    }
+
+    public static IConfigBackend byName(String name) {
+        for (IConfigBackend backend : getBackends()) {
+            if (backend.getName().equals(name)) {
+                return backend;
+            }
+        }
+        throw new UnsupportedOperationException("No backend named " + name);
+    }
+
+    /**
+     * @return the backend owning the file's extension, or null.
+     */
+    public static IConfigBackend byExtension(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot == -1) {
+            return null;
+        }
+
+        String extension = name.substring(dot + 1).toLowerCase(Locale.ROOT);
+        for (IConfigBackend backend : getBackends()) {
+            if (backend.getExtensions().contains(extension)) {
+                return backend;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the backend most sure the bytes are in its format, or null if
+     * none of them recognize it.
+     */
+    public static IConfigBackend detect(byte[] head, int length) {
+        IConfigBackend best = null;
+        int bestScore = 0;
+        for (IConfigBackend backend : getBackends()) {
+            int score = backend.detect(head, length);
+            if (score > bestScore) {
+                best = backend;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the backend for the file's extension, or if no backend owns
+     * it, the one that recognizes the start of the file. Null if neither
+     * works.
+     */
+    public static IConfigBackend detect(Path file) throws IOException {
+        IConfigBackend backend = byExtension(file);
+        if (backend != null) {
+            return backend;
+        }
+
+        try (InputStream input = Files.newInputStream(file)) {
+            byte[] head = input.readNBytes(HEAD_SIZE);
+            return detect(head, head.length);
+        }
+    }
+
+    public static IObjectNode load(Path file) throws IOException {
+        return load(file, NodeFactory.DEFAULT);
+    }
+
+    public static IObjectNode load(Path file, INodeFactory factory) throws IOException {
+        IConfigBackend backend = detect(file);
+        if (backend == null) {
+            throw new UnsupportedOperationException("Can't tell what format " + file + " is in");
+        }
+        return backend.load(file, factory);
+    }
+
+    public static IObjectNode read(InputStream input) throws IOException {
+        return read(input, NodeFactory.DEFAULT);
+    }
+
+    /**
+     * Reads a tree in whatever format the stream turns out to hold. The
+     * stream is left open.
+     */
+    public static IObjectNode read(InputStream input, INodeFactory factory) throws IOException {
+        InputStream buffered = input.markSupported() ? input : new BufferedInputStream(input);
+        buffered.mark(HEAD_SIZE);
+        byte[] head = buffered.readNBytes(HEAD_SIZE);
+        buffered.reset();
+
+        IConfigBackend backend = detect(head, head.length);
+        if (backend == null) {
+            throw new UnsupportedOperationException("Can't tell what format the input is in");
+        }
+        return backend.read(buffered, factory);
+    }
+
+    /**
+     * Writes the tree in the format its extension calls for, replacing the
+     * file in one step.
+     */
+    public static void write(INode root, Path file) throws IOException {
+        IConfigBackend backend = byExtension(file);
+        if (backend == null) {
+            throw new UnsupportedOperationException("No backend writes " + file.getFileName());
+        }
+
+        AtomicFiles.write(file, output -> backend.write(root, output));
+    }
+}
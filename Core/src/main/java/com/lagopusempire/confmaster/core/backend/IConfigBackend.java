@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core.backend;
+
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.INodeFactory;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * A config file format. Backends are found through
+ * {@link java.util.ServiceLoader}, so a module only has to list its
+ * backend in META-INF/services for {@link ConfigBackends} to pick it up.
+ *
+ * @author Foomf
+ */
+public interface IConfigBackend {
+    /**
+     * Detection score for a format that starts with its own magic bytes.
+     */
+    int CERTAIN = 100;
+
+    String getName();
+
+    /**
+     * @return the file extensions this backend owns, lower case and without
+     * the dot.
+     */
+    Set<String> getExtensions();
+
+    /**
+     * Looks at the first bytes of some input and says how sure this backend
+     * is that they are in its format: 0 if they are not, up to
+     * {@link #CERTAIN}. Formats that can read each other's files, like YAML
+     * and JSON, should give the narrower one the higher score.
+     */
+    int detect(byte[] head, int length);
+
+    /**
+     * Reads a whole tree. The stream is left open.
+     */
+    IObjectNode read(InputStream input, INodeFactory factory) throws IOException;
+
+    /**
+     * Writes a whole tree and flushes it. The stream is left open.
+     */
+    void write(INode root, OutputStream output) throws IOException;
+
+    default IObjectNode load(Path file, INodeFactory factory) throws IOException {
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(file))) {
+            return read(input, factory);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ *
+ * @author Foomf
+ */
+public class ChildMapTest {
+    private static final INode[] NODES = new INode[16];
+
+    static {
+        for (int ii = 0; ii < NODES.length; ++ii) {
+            NODES[ii] = new ValueNode(ii);
+        }
+    }
+
+    private static void assertSameEntries(Map<String, INode> expected, Map<String, INode> actual) {
+        assertEquals(expected.size(), actual.size());
+        Map<String, INode> seen = new HashMap<>();
+        for (Map.Entry<String, INode> entry : actual.entrySet()) {
+            assertTrue("seen twice: " + entry.getKey(), seen.put(entry.getKey(), entry.getValue()) == null);
+        }
+        assertEquals(expected, seen);
+        for (Map.Entry<String, INode> entry : expected.entrySet()) {
+            assertSame(entry.getValue(), actual.get(entry.getKey()));
+        }
+    }
+
+    // Puts and removes keys at random, growing the map through several
+    // resizes, and checks it against a HashMap all along.
+    private static void randomRun(ChildMapStrategy strategy, int keyCount, long seed) {
+        Random random = new Random(seed);
+        Map<String, INode> expected = new HashMap<>();
+        Map<String, INode> actual = strategy.createMap(0);
+        for (int ii = 0; ii < keyCount * 8; ++ii) {
+            // Keys are drawn from a range that widens as the run goes on, so
+            // the map keeps growing while still removing plenty.
+            String key = "k" + random.nextInt(keyCount * (ii + 1) / (keyCount * 8) + 2);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), actual.remove(key));
+            } else {
+                INode value = NODES[random.nextInt(NODES.length)];
+                assertEquals(expected.put(key, value), actual.put(key, value));
+                actual = strategy.grow(actual);
+            }
+            assertEquals(expected.size(), actual.size());
+            assertEquals(expected.containsKey(key), actual.containsKey(key));
+            if (ii % 97 == 0) {
+                assertSameEntries(expected, actual);
+            }
+        }
+        assertSameEntries(expected, actual);
+    }
+
+    // Removes about half the entries through the iterator, and checks that
+    // every entry is still walked exactly once.
+    private static void iteratorRemove(Map<String, INode> actual, long seed) {
+        Random random = new Random(seed);
+        Map<String, INode> expected = new HashMap<>(actual);
+        Set<String> all = new HashSet<>(actual.keySet());
+        Set<String> walked = new HashSet<>();
+        for (Iterator<Map.Entry<String, INode>> it = actual.entrySet().iterator(); it.hasNext();) {
+            String key = it.next().getKey();
+            assertTrue("walked twice: " + key, walked.add(key));
+            if (random.nextBoolean()) {
+                it.remove();
+                expected.remove(key);
+            }
+        }
+        assertEquals(all, walked);
+        assertSameEntries(expected, actual);
+    }
+
+    @Test
+    public void hashedMatchesHashMapAcrossResizes() {
+        for (long seed = 0; seed < 8; ++seed) {
+            randomRun(ChildMapStrategy.HASHED, 500, seed);
+        }
+    }
+
+    @Test
+    public void compactMatchesHashMapAcrossResizes() {
+        for (long seed = 0; seed < 8; ++seed) {
+            randomRun(ChildMapStrategy.COMPACT, 40, seed);
+        }
+    }
+
+    @Test
+    public void adaptiveMatchesHashMapAcrossTheSwitch() {
+        for (long seed = 0; seed < 8; ++seed) {
+            randomRun(ChildMapStrategy.ADAPTIVE, 40, seed);
+        }
+    }
+
+    @Test
+    public void adaptiveSwitchesToHashedPastTheLimit() {
+        Map<String, INode> expected = new HashMap<>();
+        Map<String, INode> actual = ChildMapStrategy.ADAPTIVE.createMap(0);
+        for (int ii = 0; ii <= ChildMapStrategy.COMPACT_LIMIT; ++ii) {
+            assertTrue(actual instanceof CompactChildMap);
+            expected.put("k" + ii, NODES[ii]);
+            actual.put("k" + ii, NODES[ii]);
+            actual = ChildMapStrategy.ADAPTIVE.grow(actual);
+        }
+        assertTrue(actual instanceof HashedChildMap);
+        assertSameEntries(expected, actual);
+
+        actual.remove("k0");
+        expected.remove("k0");
+        assertFalse(actual.containsKey("k0"));
+        assertSameEntries(expected, actual);
+    }
+
+    @Test
+    public void hashedIteratorRemovesAtEverySize() {
+        for (int count = 1; count < 200; ++count) {
+            Map<String, INode> map = ChildMapStrategy.HASHED.createMap(0);
+            for (int ii = 0; ii < count; ++ii) {
+                map.put("k" + ii, NODES[ii % NODES.length]);
+            }
+            iteratorRemove(map, count);
+        }
+    }
+
+    @Test
+    public void hashedIteratorRemovesChainsThatWrap() {
+        // Every key wants the last slot of the smallest table, so the chain
+        // wraps around to the start of it.
+        List<String> keys = new ArrayList<>();
+        for (int ii = 0; keys.size() < 10; ++ii) {
+            int hash = ("w" + ii).hashCode();
+            if (((hash ^ (hash >>> 16)) & 15) == 15) {
+                keys.add("w" + ii);
+            }
+        }
+
+        for (long seed = 0; seed < 64; ++seed) {
+            Map<String, INode> map = ChildMapStrategy.HASHED.createMap(0);
+            for (int ii = 0; ii < keys.size(); ++ii) {
+                map.put(keys.get(ii), NODES[ii]);
+            }
+            iteratorRemove(map, seed);
+        }
+    }
+
+    @Test
+    public void compactIteratorRemoves() {
+        Map<String, INode> map = ChildMapStrategy.COMPACT.createMap(0);
+        for (int ii = 0; ii < 20; ++ii) {
+            map.put("k" + ii, NODES[ii % NODES.length]);
+        }
+        iteratorRemove(map, 1);
+    }
+
+    @Test
+    public void objectNodeKeysSurviveTheSwitch() {
+        ObjectNode node = new ObjectNode(ChildMapStrategy.ADAPTIVE);
+        Set<String> expected = new HashSet<>();
+        for (int ii = 0; ii < 3 * ChildMapStrategy.COMPACT_LIMIT; ++ii) {
+            node.set("k" + ii, ii);
+            expected.add("k" + ii);
+        }
+        for (int ii = 0; ii < 3 * ChildMapStrategy.COMPACT_LIMIT; ii += 3) {
+            node.unset("k" + ii);
+            expected.remove("k" + ii);
+        }
+        assertEquals(expected, node.keys());
+        assertEquals(4, node.getInt("k4"));
+    }
+}
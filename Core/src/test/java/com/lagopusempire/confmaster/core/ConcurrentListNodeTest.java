@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ *
+ * @author Foomf
+ */
+public class ConcurrentListNodeTest {
+    @Test
+    public void keepsOrderAcrossGrowth() {
+        IListNode list = ConcurrentNodeFactory.INSTANCE.createList(0);
+        for (int ii = 0; ii < 1000; ++ii) {
+            list.add(new ValueNode(ii));
+        }
+        assertEquals(1000, list.length());
+        for (int ii = 0; ii < 1000; ++ii) {
+            assertEquals(ii, list.getInt(ii));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void spareCapacityIsOutOfBounds() {
+        IListNode list = ConcurrentNodeFactory.INSTANCE.createList(8);
+        list.add(new ValueNode(1));
+        list.get(1);
+    }
+
+    @Test
+    public void readersSeeEveryAddedItem() throws InterruptedException {
+        ConcurrentListNode list = new ConcurrentListNode();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger missing = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                int length = list.length();
+                if (length > 0 && list.get(length - 1) == null) {
+                    missing.incrementAndGet();
+                }
+            }
+        });
+        reader.start();
+
+        Thread[] writers = new Thread[2];
+        for (int ii = 0; ii < writers.length; ++ii) {
+            int offset = ii * 10000;
+            writers[ii] = new Thread(() -> {
+                for (int jj = 0; jj < 10000; ++jj) {
+                    list.add(new ValueNode(offset + jj));
+                }
+            });
+            writers[ii].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        done.set(true);
+        reader.join();
+        assertEquals(0, missing.get());
+
+        Set<Integer> seen = new HashSet<>();
+        for (int ii = 0; ii < list.length(); ++ii) {
+            seen.add(list.getInt(ii));
+        }
+        assertEquals(20000, seen.size());
+    }
+}
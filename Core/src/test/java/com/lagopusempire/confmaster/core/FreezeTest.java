@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import static com.lagopusempire.confmaster.core.Trees.tree;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Foomf
+ */
+public class FreezeTest {
+    @Test
+    public void unchangedTreeReusesSnapshot() {
+        ObjectNode root = tree(1);
+        assertSame(root.freeze(), root.freeze());
+    }
+
+    @Test
+    public void freezeAfterRenameSeesNewValues() {
+        ObjectNode root = tree(1);
+        root.set("b", root.get("a"));
+        root.unset("a");
+        IObjectNode before = root.freeze();
+        assertEquals(1, before.resolveInt("b.x"));
+
+        root.getObject("b").set("x", 2);
+        IObjectNode after = root.freeze();
+        assertNotSame(before, after);
+        assertEquals(2, after.resolveInt("b.x"));
+        assertEquals(1, before.resolveInt("b.x"));
+    }
+
+    @Test
+    public void freezeSplitsSharedChildren() {
+        ObjectNode first = tree(1);
+        ObjectNode second = new ObjectNode();
+        second.set("shared", first.get("a"));
+        second.getObject("shared").set("x", 2);
+        assertEquals(2, first.freeze().resolveInt("a.x"));
+
+        second.getObject("shared").set("x", 3);
+        assertEquals(3, second.freeze().resolveInt("shared.x"));
+        assertEquals(2, first.freeze().resolveInt("a.x"));
+    }
+
+    @Test
+    public void snapshotsShareWhatWasNotChanged() {
+        ObjectNode root = tree(1);
+        root.set("b", tree(2));
+        IObjectNode before = root.freeze();
+
+        root.getObject("a").set("x", 3);
+        IObjectNode after = root.freeze();
+        assertSame(before.get("b"), after.get("b"));
+        assertNotSame(before.get("a"), after.get("a"));
+        assertEquals(1, before.resolveInt("a.x"));
+        assertEquals(3, after.resolveInt("a.x"));
+        assertEquals(2, after.resolveInt("b.a.x"));
+    }
+
+    @Test
+    public void firstFreezeCopiesNothingBelowTheRoot() {
+        ObjectNode root = tree(1);
+        INode a = root.get("a");
+        IObjectNode snapshot = root.freeze();
+        assertSame(a, snapshot.get("a"));
+        assertTrue(a.isFrozen());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void nodesTakenBeforeFreezeBecomeReadOnly() {
+        ObjectNode root = tree(1);
+        IObjectNode a = root.getObject("a");
+        root.freeze();
+        a.set("x", 2);
+    }
+
+    @Test
+    public void readingAfterFreezeHandsOutWritableCopies() {
+        ObjectNode root = tree(1);
+        IObjectNode snapshot = root.freeze();
+
+        IValueNode x = root.getObject("a").getValue("x");
+        assertFalse(x.isFrozen());
+        assertSame(x, root.getObject("a").getValue("x"));
+        x.set(5);
+        assertEquals(5, root.resolveInt("a.x"));
+        assertEquals(1, snapshot.resolveInt("a.x"));
+        assertEquals(5, root.freeze().resolveInt("a.x"));
+    }
+
+    @Test
+    public void listSnapshotsKeepTheirValues() {
+        ListNode list = new ListNode();
+        list.add(new ValueNode(1));
+        list.add(tree(2));
+        IListNode before = list.freeze();
+
+        list.getValue(0).set(3);
+        list.getObject(1).set("y", 4);
+        list.add(new ValueNode(5));
+        IListNode after = list.freeze();
+        assertEquals(2, before.length());
+        assertEquals(1, before.getValue(0).intValue());
+        assertFalse(before.getObject(1).keys().contains("y"));
+        assertEquals(3, after.length());
+        assertEquals(3, after.getValue(0).intValue());
+        assertEquals(4, after.getObject(1).getValue("y").intValue());
+    }
+
+    @Test
+    public void freezeSeesValuesChangedInPlace() {
+        ObjectNode root = tree(1);
+        IObjectNode before = root.freeze();
+
+        root.getObject("a").getValue("x").set(2);
+        IObjectNode after = root.freeze();
+        assertNotSame(before, after);
+        assertEquals(2, after.resolveInt("a.x"));
+        assertEquals(1, before.resolveInt("a.x"));
+    }
+
+    @Test
+    public void listFreezeAfterMoveSeesNewValues() {
+        ObjectNode root = tree(1);
+        ListNode list = new ListNode();
+        list.add(root.get("a"));
+        root.unset("a");
+        assertEquals(1, list.freeze().getObject(0).getValue("x").intValue());
+
+        ((IObjectNode)list.get(0)).set("x", 2);
+        assertEquals(2, list.freeze().getObject(0).getValue("x").intValue());
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import static com.lagopusempire.confmaster.core.Trees.tree;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Foomf
+ */
+public class PathIndexTest {
+    @Test
+    public void resolvesEveryPath() {
+        ObjectNode root = tree(1).enablePathIndex();
+        root.getObject("a").set("d", 2.5);
+        assertEquals(1, root.resolveInt("a.x"));
+        assertEquals(1L, root.resolveLong(ConfPath.compile("a.x")));
+        assertEquals(2.5, root.resolveDouble("a.d"), 0);
+        assertEquals(2, root.resolveInt("a.d"));
+        assertSame(root.get("a"), root.resolveNode("a"));
+    }
+
+    @Test
+    public void indexFollowsRenamedChild() {
+        ObjectNode root = tree(1).enablePathIndex();
+        root.set("b", root.get("a"));
+        root.unset("a");
+        assertEquals(1, root.resolveInt("b.x"));
+
+        root.getObject("b").set("x", 5);
+        assertEquals(5, root.resolveInt("b.x"));
+        assertEquals(5, root.resolveInt(ConfPath.compile("b.x")));
+    }
+
+    @Test
+    public void indexFollowsSharedChild() {
+        ObjectNode first = tree(1).enablePathIndex();
+        ObjectNode second = new ObjectNode();
+        second.set("shared", first.get("a"));
+        assertEquals(1, first.resolveInt("a.x"));
+
+        second.getObject("shared").set("x", 5);
+        assertEquals(5, first.resolveInt("a.x"));
+    }
+
+    @Test
+    public void indexReadsValuesChangedInPlace() {
+        ObjectNode root = tree(1).enablePathIndex();
+        assertEquals(1, root.resolveInt("a.x"));
+
+        root.getObject("a").getValue("x").set(5);
+        assertEquals(5, root.resolveInt("a.x"));
+    }
+
+    @Test
+    public void dottedKeysFallBackToTheWalk() {
+        ObjectNode root = tree(1).enablePathIndex();
+        root.set("a.x", new ValueNode(7));
+        assertEquals(1, root.resolveInt("a.x"));
+    }
+}
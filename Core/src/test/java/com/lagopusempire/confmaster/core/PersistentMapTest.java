@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ *
+ * @author Foomf
+ */
+public class PersistentMapTest {
+    // "Aa" and "BB" hash the same, so every string made of them collides.
+    private static final String[] COLLIDING = { "AaAa", "AaBB", "BBAa", "BBBB" };
+
+    private static void assertMatches(Map<String, INode> expected, PersistentMap map) {
+        assertEquals(expected.size(), map.size());
+        Set<String> keys = new HashSet<>();
+        for (String key : map) {
+            keys.add(key);
+            assertSame(expected.get(key), map.get(key));
+        }
+        assertEquals(expected.keySet(), keys);
+    }
+
+    @Test
+    public void collidingKeysAreKeptApart() {
+        PersistentMap map = PersistentMap.EMPTY;
+        Map<String, INode> expected = new HashMap<>();
+        for (String key : COLLIDING) {
+            ValueNode value = new ValueNode(key);
+            map = map.put(key, value);
+            expected.put(key, value);
+        }
+        assertMatches(expected, map);
+        assertNull(map.get("AaAb"));
+
+        // A key with a different hash next to the collision bucket.
+        ValueNode other = new ValueNode(1);
+        map = map.put("other", other);
+        expected.put("other", other);
+        assertMatches(expected, map);
+
+        for (String key : COLLIDING) {
+            map = map.remove(key);
+            expected.remove(key);
+            assertMatches(expected, map);
+        }
+    }
+
+    @Test
+    public void removingEverythingCollapsesToEmpty() {
+        PersistentMap map = PersistentMap.EMPTY;
+        for (int ii = 0; ii < 2000; ++ii) {
+            map = map.put("key" + ii, new ValueNode(ii));
+        }
+        for (String key : COLLIDING) {
+            map = map.put(key, new ValueNode(key));
+        }
+        for (int ii = 0; ii < 2000; ++ii) {
+            map = map.remove("key" + ii);
+        }
+        for (String key : COLLIDING) {
+            map = map.remove(key);
+        }
+        assertSame(PersistentMap.EMPTY, map);
+    }
+
+    @Test
+    public void unchangedUpdatesReturnTheSameMap() {
+        ValueNode value = new ValueNode(1);
+        PersistentMap map = PersistentMap.EMPTY.put("a", value);
+        assertSame(map, map.put("a", value));
+        assertSame(map, map.remove("b"));
+        assertSame(map, map.remove("AaAa"));
+    }
+
+    @Test
+    public void oldVersionsStayIntact() {
+        Random random = new Random(7);
+        List<PersistentMap> versions = new ArrayList<>();
+        List<Map<String, INode>> expected = new ArrayList<>();
+        PersistentMap map = PersistentMap.EMPTY;
+        Map<String, INode> model = new HashMap<>();
+        for (int ii = 0; ii < 5000; ++ii) {
+            String key = random.nextInt(4) == 0
+                    ? COLLIDING[random.nextInt(COLLIDING.length)]
+                    : "key" + random.nextInt(1500);
+            if (random.nextInt(3) == 0) {
+                map = map.remove(key);
+                model.remove(key);
+            } else {
+                ValueNode value = new ValueNode(ii);
+                map = map.put(key, value);
+                model.put(key, value);
+            }
+            if (ii % 500 == 0) {
+                versions.add(map);
+                expected.add(new HashMap<>(model));
+            }
+        }
+        assertMatches(model, map);
+        for (int ii = 0; ii < versions.size(); ++ii) {
+            assertMatches(expected.get(ii), versions.get(ii));
+        }
+    }
+}
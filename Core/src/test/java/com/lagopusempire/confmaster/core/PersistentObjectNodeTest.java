@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Foomf
+ */
+public class PersistentObjectNodeTest {
+    private static ObjectNode tree() {
+        ObjectNode leaf = new ObjectNode();
+        leaf.set("x", new ValueNode(1));
+        ObjectNode branch = new ObjectNode();
+        branch.set("c", leaf);
+        branch.set("d", leaf.deepClone());
+        return branch;
+    }
+
+    @Test
+    public void storedObjectsBecomePersistent() {
+        PersistentObjectNode root = PersistentObjectNode.EMPTY.set("b", tree());
+        assertTrue(root.get("b") instanceof PersistentObjectNode);
+        assertTrue(root.getObject("b").get("c") instanceof PersistentObjectNode);
+    }
+
+    @Test
+    public void setInSharesUntouchedSubtrees() {
+        PersistentObjectNode before = PersistentObjectNode.EMPTY.set("b", tree());
+        PersistentObjectNode after = before.setIn(ConfPath.compile("b.c.x"), new ValueNode(2));
+
+        assertEquals(2, after.resolveInt("b.c.x"));
+        assertEquals(1, before.resolveInt("b.c.x"));
+        assertSame(before.getObject("b").get("d"), after.getObject("b").get("d"));
+    }
+
+    @Test
+    public void storingKeepsTheSourceMutable() {
+        ObjectNode source = tree();
+        PersistentObjectNode root = PersistentObjectNode.EMPTY.set("b", source);
+        source.getObject("c").set("x", 3);
+        assertEquals(1, root.resolveInt("b.c.x"));
+    }
+}
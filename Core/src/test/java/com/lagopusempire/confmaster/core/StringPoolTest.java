@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Foomf
+ */
+public class StringPoolTest {
+    @Test
+    public void equalStringsShareOneInstance() {
+        StringPool pool = new StringPool();
+        String first = pool.intern(new String("name"));
+        assertSame(first, pool.intern(new String("name")));
+        assertEquals(1, pool.size());
+
+        pool.clear();
+        assertEquals(0, pool.size());
+        assertNotSame(first, pool.intern(new String("name")));
+    }
+
+    @Test
+    public void overflowKeepsRepeatedStrings() {
+        StringPool pool = new StringPool(1024);
+        String id = pool.intern(new String("id"));
+        int kept = 0;
+        for (int ii = 0; ii < 100000; ++ii) {
+            pool.intern("unique" + ii);
+            String again = pool.intern(new String("id"));
+            if (again == id) {
+                kept++;
+            }
+            id = again;
+        }
+        assertTrue(pool.size() <= 1024);
+        assertTrue("kept " + kept, kept > 99000);
+    }
+
+    @Test
+    public void factoriesKeepTheirOwnKeys() {
+        NodeFactory first = new NodeFactory(ChildMapStrategy.SORTED);
+        NodeFactory second = new NodeFactory(ChildMapStrategy.SORTED);
+        String key = first.createKey(new String("key"));
+        assertSame(key, first.createKey(new String("key")));
+        assertNotSame(key, second.createKey(new String("key")));
+    }
+}
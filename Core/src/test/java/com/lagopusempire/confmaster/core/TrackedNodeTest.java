@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import static com.lagopusempire.confmaster.core.Trees.tree;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.ref.WeakReference;
+import org.junit.Test;
+
+/**
+ *
+ * @author Foomf
+ */
+public class TrackedNodeTest {
+    @Test
+    public void renamedChildStillBumpsRoot() {
+        ObjectNode root = tree(1);
+        root.set("b", root.get("a"));
+        root.unset("a");
+
+        long before = root.getVersion();
+        root.getObject("b").set("x", 2);
+        assertNotEquals(before, root.getVersion());
+    }
+
+    @Test
+    public void renamedChildInvalidatesResolutionCache() {
+        ObjectNode root = tree(1).enableResolutionCache();
+        root.set("b", root.get("a"));
+        root.unset("a");
+        assertEquals(1, root.resolveInt("b.x"));
+
+        root.getObject("b").set("x", 2);
+        assertEquals(2, root.resolveInt("b.x"));
+    }
+
+    @Test
+    public void sharedChildBumpsEveryTree() {
+        ObjectNode first = tree(1).enableResolutionCache();
+        ObjectNode second = new ObjectNode().enableResolutionCache();
+        second.set("shared", first.get("a"));
+        assertEquals(1, first.resolveInt("a.x"));
+        assertEquals(1, second.resolveInt("shared.x"));
+
+        first.getObject("a").set("x", 2);
+        assertEquals(2, first.resolveInt("a.x"));
+        assertEquals(2, second.resolveInt("shared.x"));
+    }
+
+    @Test
+    public void releasingOneHolderKeepsTheOther() {
+        ObjectNode first = tree(1).enableResolutionCache();
+        ObjectNode second = new ObjectNode();
+        second.set("shared", first.get("a"));
+        second.unset("shared");
+        assertEquals(1, first.resolveInt("a.x"));
+
+        first.getObject("a").set("x", 3);
+        assertEquals(3, first.resolveInt("a.x"));
+    }
+
+    @Test
+    public void settingTheSameChildTwiceCountsOnce() {
+        ObjectNode root = tree(1).enableResolutionCache();
+        root.set("a", root.get("a"));
+        root.set("b", root.get("a"));
+        root.unset("b");
+        assertEquals(1, root.resolveInt("a.x"));
+
+        root.getObject("a").set("x", 4);
+        assertEquals(4, root.resolveInt("a.x"));
+    }
+
+    @Test
+    public void replacedChildNoLongerBumpsRoot() {
+        ObjectNode root = tree(1);
+        ObjectNode old = (ObjectNode)root.getObject("a");
+        root.set("a", new ObjectNode());
+
+        long before = root.getVersion();
+        old.set("x", 5);
+        assertEquals(before, root.getVersion());
+    }
+
+    private static WeakReference<ObjectNode> holdElsewhere(INode node) {
+        ObjectNode other = new ObjectNode();
+        other.set("shared", node);
+        return new WeakReference<>(other);
+    }
+
+    @Test
+    public void droppedTreeIsNotKeptAliveBySharedChild() throws InterruptedException {
+        ObjectNode root = tree(1);
+        IObjectNode shared = root.getObject("a");
+        WeakReference<ObjectNode> dropped = holdElsewhere(shared);
+        for (int ii = 0; ii < 100 && dropped.get() != null; ++ii) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(dropped.get());
+
+        long before = root.getVersion();
+        shared.set("x", 2);
+        assertNotEquals(before, root.getVersion());
+    }
+}
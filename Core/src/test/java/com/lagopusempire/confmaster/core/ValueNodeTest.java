@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Foomf
+ */
+public class ValueNodeTest {
+    @Test
+    public void booleansReadBackAsOneOrZero() {
+        ValueNode yes = new ValueNode(true);
+        ValueNode no = new ValueNode(false);
+        assertEquals(ValueType.BOOLEAN, yes.getValueType());
+        assertTrue(yes.booleanValue());
+        assertFalse(no.booleanValue());
+        assertEquals("1", yes.stringValue());
+        assertEquals("0", no.stringValue());
+        assertEquals(1, yes.getNumber());
+        assertEquals(0, no.getNumber());
+        assertEquals(1, yes.intValue());
+    }
+
+    @Test
+    public void frozenValuesThawIntoWritableCopies() {
+        ValueNode value = new ValueNode(1);
+        ValueNode frozen = value.freeze();
+        assertTrue(frozen.isFrozen());
+        assertFalse(frozen.deepClone().isFrozen());
+        value.set(2);
+        assertEquals(1, frozen.intValue());
+    }
+}
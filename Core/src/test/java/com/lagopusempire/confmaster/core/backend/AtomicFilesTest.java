@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.core.backend;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Foomf
+ */
+public class AtomicFilesTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static long files(Path dir) throws IOException {
+        try (Stream<Path> list = Files.list(dir)) {
+            return list.count();
+        }
+    }
+
+    @Test
+    public void replacesTheFileAndLeavesNoTemp() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("conf.bin");
+        Files.write(file, new byte[] { 1, 2, 3 });
+        AtomicFiles.write(file, output -> output.write(new byte[] { 4, 5 }));
+        assertArrayEquals(new byte[] { 4, 5 }, Files.readAllBytes(file));
+        assertEquals(1, files(folder.getRoot().toPath()));
+    }
+
+    @Test
+    public void writesText() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("conf.txt");
+        AtomicFiles.writeText(file, writer -> writer.write("héllo"));
+        assertEquals("héllo", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void failedBodyKeepsTheOldFile() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("conf.bin");
+        Files.write(file, new byte[] { 1 });
+        try {
+            AtomicFiles.write(file, output -> {
+                output.write(2);
+                throw new IOException("boom");
+            });
+            fail("The body's exception should reach the caller");
+        } catch (IOException e) {
+            assertEquals("boom", e.getMessage());
+        }
+        assertArrayEquals(new byte[] { 1 }, Files.readAllBytes(file));
+        assertEquals(1, files(folder.getRoot().toPath()));
+    }
+
+    @Test
+    public void keepsTheTargetsPermissions() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("conf.txt");
+        Files.write(file, new byte[] { 1 });
+        Assume.assumeNotNull(Files.getFileAttributeView(file, PosixFileAttributeView.class));
+
+        Set<PosixFilePermission> shared = PosixFilePermissions.fromString("rw-rw-r--");
+        Files.setPosixFilePermissions(file, shared);
+        AtomicFiles.writeText(file, writer -> writer.write("new"));
+        assertEquals(shared, Files.getPosixFilePermissions(file));
+    }
+
+    @Test
+    public void newFilesGetTheDefaultPermissions() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("new.txt");
+        Assume.assumeNotNull(Files.getFileAttributeView(folder.getRoot().toPath(), PosixFileAttributeView.class));
+
+        AtomicFiles.writeText(file, writer -> writer.write("new"));
+        assertEquals(PosixFilePermissions.fromString("rw-r--r--"), Files.getPosixFilePermissions(file));
+        assertEquals(1, files(folder.getRoot().toPath()));
+    }
+
+    @Test
+    public void writesIntoANestedDirectory() throws IOException {
+        Path directory = Files.createDirectory(folder.getRoot().toPath().resolve("nested"));
+        Path file = directory.resolve("conf.bin");
+        AtomicFiles.write(file, output -> output.write(7));
+        AtomicFiles.write(file, output -> output.write(8));
+        assertArrayEquals(new byte[] { 8 }, Files.readAllBytes(file));
+        assertEquals(1, files(directory));
+    }
+}
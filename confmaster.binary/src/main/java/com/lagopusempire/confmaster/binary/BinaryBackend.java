@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.binary;
+
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.INodeFactory;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.NodeFactory;
+import com.lagopusempire.confmaster.core.NodeType;
+import com.lagopusempire.confmaster.core.backend.AtomicFiles;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads and writes node trees in a compact binary form. Meant for configs
+ * that are compiled once and loaded often: loading one is a single pass
+ * over the stream with no text to parse.
+ *
+ * @author Foomf
+ */
+public class BinaryBackend {
+    public static byte[] Serialize(INode root) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            Serialize(root, output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toByteArray();
+    }
+
+    public static void Serialize(INode root, OutputStream output) throws IOException {
+        new BinaryWriter(output).write(root);
+    }
+
+    public static IObjectNode DeserializeObject(byte[] data) {
+        return DeserializeObject(data, NodeFactory.DEFAULT);
+    }
+
+    public static IObjectNode DeserializeObject(byte[] data, INodeFactory factory) {
+        try {
+            return Load(new ByteArrayInputStream(data), factory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static IObjectNode Load(InputStream input) throws IOException {
+        return Load(input, NodeFactory.DEFAULT);
+    }
+
+    public static IObjectNode Load(InputStream input, INodeFactory factory) throws IOException {
+        INode root = new BinaryReader(input, factory).read();
+        if (root.getType() != NodeType.OBJECT) {
+            throw new UnsupportedOperationException("Didn't read an object");
+        }
+        return (IObjectNode)root;
+    }
+
+    public static IObjectNode Load(Path file) throws IOException {
+        return Load(file, NodeFactory.DEFAULT);
+    }
+
+    public static IObjectNode Load(Path file, INodeFactory factory) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            return Load(input, factory);
+        }
+    }
+
+    public static void Write(INode root, Path file) throws IOException {
+        AtomicFiles.write(file, output -> Serialize(root, output));
+    }
+
+    public static void SerializeIndexed(INode root, OutputStream output) throws IOException {
+        new IndexedWriter(output).write(root);
+    }
+
+    /**
+     * Writes the tree in the indexed layout, which {@link #Map(Path)} can
+     * read in place.
+     */
+    public static void WriteIndexed(INode root, Path file) throws IOException {
+        AtomicFiles.write(file, output -> SerializeIndexed(root, output));
+    }
+
+    /**
+     * Maps a file written by {@link #WriteIndexed(INode, Path)} and returns a
+     * read only view of its root. Nothing is read up front: every lookup
+     * goes to the mapped file, and the OS pages in only the parts that are
+     * used.
+     */
+    public static IObjectNode Map(Path file) throws IOException {
+        return MappedFile.open(file);
+    }
+}
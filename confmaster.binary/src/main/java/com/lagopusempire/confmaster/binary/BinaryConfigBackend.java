@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.binary;
+
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.INodeFactory;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.backend.IConfigBackend;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Set;
+
+/**
+ *
+ * @author Foomf
+ */
+public final class BinaryConfigBackend implements IConfigBackend {
+    private static final Set<String> EXTENSIONS = Set.of("cmb");
+
+    @Override
+    public String getName() {
+        return "binary";
+    }
+
+    @Override
+    public Set<String> getExtensions() {
+        return EXTENSIONS;
+    }
+
+    @Override
+    public int detect(byte[] head, int length) {
+        return startsWith(head, length, BinaryFormat.MAGIC) ? CERTAIN : 0;
+    }
+
+    @Override
+    public IObjectNode read(InputStream input, INodeFactory factory) throws IOException {
+        return BinaryBackend.Load(input, factory);
+    }
+
+    @Override
+    public void write(INode root, OutputStream output) throws IOException {
+        BinaryBackend.Serialize(root, output);
+    }
+
+    static boolean startsWith(byte[] head, int length, byte[] magic) {
+        if (length < magic.length) {
+            return false;
+        }
+        for (int ii = 0; ii < magic.length; ++ii) {
+            if (head[ii] != magic[ii]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.binary;
+
+/**
+ * The layout of a binary config.
+ *
+ * A file starts with {@link #MAGIC}, followed by the string table: a count,
+ * then every distinct key and string value as a length and its UTF-8 bytes.
+ * After that comes the root node. Every node is a tag byte and its payload.
+ * Objects and lists hold a count followed by their children, and object
+ * keys and string values are indexes into the table. Counts, lengths and
+ * indexes are unsigned varints. Shorts, ints and longs are zigzag varints,
+ * and floats and doubles are their raw little endian bits.
+ *
+ * The indexed layout starts with {@link #INDEXED_MAGIC} and is built for
+ * reading in place. Every node is a record at some offset, and a node's
+ * children are written before it so it can point back at them. An object
+ * record is its tag, an int count, and a long key offset and long value
+ * offset per entry, sorted by the keys' UTF-8 bytes. A list record is its
+ * tag, an int count and a long offset per item. Keys and string values
+ * share string records, each a tag, an int length and the UTF-8 bytes.
+ * Other values are a tag and their fixed size little endian bits, and the
+ * last eight bytes of the file hold the offset of the root.
+ *
+ * @author Foomf
+ */
+final class BinaryFormat {
+    static final byte[] MAGIC = { 'C', 'M', 'B', 1 };
+    static final byte[] INDEXED_MAGIC = { 'C', 'M', 'I', 1 };
+
+    // The tag and count in front of an object's entries or a list's items.
+    static final int HEADER_SIZE = 5;
+    static final int ENTRY_SIZE = 16;
+    static final int ITEM_SIZE = 8;
+
+    static final int NULL = 0;
+    static final int BYTE = 1;
+    static final int SHORT = 2;
+    static final int INT = 3;
+    static final int LONG = 4;
+    static final int FLOAT = 5;
+    static final int DOUBLE = 6;
+    static final int STRING = 7;
+    static final int FALSE = 8;
+    static final int TRUE = 9;
+    static final int BIG_INTEGER = 10;
+    static final int OBJECT = 11;
+    static final int LIST = 12;
+
+    private BinaryFormat() {
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.binary;
+
+import com.lagopusempire.confmaster.core.IListNode;
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.INodeFactory;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.ValueNode;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Decodes a binary config as it comes off the stream, through a buffer of
+ * its own. Counts and lengths in the stream are only trusted as far as the
+ * bytes behind them arrive: nothing is allocated up front for more than
+ * {@link #MAX_RESERVED} elements, so a corrupt count fails as a cut short
+ * stream instead of running out of memory.
+ *
+ * @author Foomf
+ */
+final class BinaryReader {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_RESERVED = 1024;
+
+    private final InputStream input;
+    private final INodeFactory factory;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private String[] strings;
+
+    BinaryReader(InputStream input, INodeFactory factory) {
+        this.input = input;
+        this.factory = factory;
+    }
+
+    INode read() throws IOException {
+        for (int ii = 0; ii < BinaryFormat.MAGIC.length; ++ii) {
+            if (readByte() != BinaryFormat.MAGIC[ii]) {
+                throw new IllegalStateException("Not a binary config");
+            }
+        }
+
+        int count = readCount();
+        strings = new String[Math.min(count, MAX_RESERVED)];
+        for (int ii = 0; ii < count; ++ii) {
+            if (ii == strings.length) {
+                strings = Arrays.copyOf(strings, Math.min(count, ii * 2));
+            }
+            byte[] bytes = readBytes(readCount());
+            strings[ii] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        return readNode();
+    }
+
+    private INode readNode() throws IOException {
+        int tag = readByte();
+        switch (tag) {
+            case BinaryFormat.OBJECT:
+                int size = readCount();
+                IObjectNode object = factory.createObject(Math.min(size, MAX_RESERVED));
+                for (int ii = 0; ii < size; ++ii) {
+                    String key = readString();
+                    object.set(key, readNode());
+                }
+                return object;
+            case BinaryFormat.LIST:
+                int length = readCount();
+                IListNode list = factory.createList(Math.min(length, MAX_RESERVED));
+                for (int ii = 0; ii < length; ++ii) {
+                    list.add(readNode());
+                }
+                return list;
+            case BinaryFormat.NULL:
+                return new ValueNode();
+            case BinaryFormat.BYTE:
+                return new ValueNode(readByte());
+            case BinaryFormat.SHORT:
+                return new ValueNode((short)readSigned());
+            case BinaryFormat.INT:
+                return new ValueNode((int)readSigned());
+            case BinaryFormat.LONG:
+                return new ValueNode(readSigned());
+            case BinaryFormat.FLOAT:
+                return new ValueNode(Float.intBitsToFloat((int)readFixed(4)));
+            case BinaryFormat.DOUBLE:
+                return new ValueNode(Double.longBitsToDouble(readFixed(8)));
+            case BinaryFormat.STRING:
+                return factory.createValue(readString());
+            case BinaryFormat.FALSE:
+                return new ValueNode(false);
+            case BinaryFormat.TRUE:
+                return new ValueNode(true);
+            case BinaryFormat.BIG_INTEGER:
+                int bytes = readCount();
+                if (bytes == 0) {
+                    throw new IllegalStateException("Empty big integer in binary config");
+                }
+                return new ValueNode(new BigInteger(readBytes(bytes)));
+            default:
+                throw new IllegalStateException("Unknown tag " + tag + " in binary config");
+        }
+    }
+
+    private String readString() throws IOException {
+        long index = readVarint();
+        if (index < 0 || index >= strings.length) {
+            throw new IllegalStateException("String " + index + " is not in the table");
+        }
+        return strings[(int)index];
+    }
+
+    private int readCount() throws IOException {
+        long count = readVarint();
+        if (count < 0 || count > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Bad count " + count + " in binary config");
+        }
+        return (int)count;
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte next = readByte();
+            value |= (long)(next & 0x7F) << shift;
+            if (next >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Varint too long in binary config");
+    }
+
+    private long readSigned() throws IOException {
+        long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readFixed(int size) throws IOException {
+        long bits = 0;
+        for (int ii = 0; ii < size; ++ii) {
+            bits |= (long)(readByte() & 0xFF) << (ii * 8);
+        }
+        return bits;
+    }
+
+    private byte readByte() throws IOException {
+        if (position == limit) {
+            fill();
+        }
+        return buffer[position++];
+    }
+
+    private void fill() throws IOException {
+        int read = input.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            throw new IllegalStateException("Binary config is cut short");
+        }
+        position = 0;
+        limit = read;
+    }
+
+    // Reads in buffer sized steps, so a corrupt length only ever allocates
+    // as much as the stream really holds.
+    private byte[] readBytes(int length) throws IOException {
+        byte[] bytes = new byte[Math.min(length, BUFFER_SIZE)];
+        int done = 0;
+        while (done < length) {
+            if (position == limit) {
+                fill();
+            }
+            if (done == bytes.length) {
+                bytes = Arrays.copyOf(bytes, (int)Math.min(length, bytes.length * 2L));
+            }
+            int step = Math.min(limit - position, bytes.length - done);
+            System.arraycopy(buffer, position, bytes, done, step);
+            position += step;
+            done += step;
+        }
+        return bytes;
+    }
+}
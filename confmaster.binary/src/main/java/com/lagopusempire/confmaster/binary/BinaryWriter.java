@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.binary;
+
+import com.lagopusempire.confmaster.core.IListNode;
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.IValueNode;
+import com.lagopusempire.confmaster.core.ValueType;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ *
+ * @author Foomf
+ */
+final class BinaryWriter {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final OutputStream output;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    BinaryWriter(OutputStream output) {
+        this.output = output;
+    }
+
+    void write(INode root) throws IOException {
+        collect(root);
+
+        writeBytes(BinaryFormat.MAGIC, 0, BinaryFormat.MAGIC.length);
+        writeVarint(strings.size());
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            writeBytes(bytes, 0, bytes.length);
+        }
+
+        writeNode(root);
+        output.write(buffer, 0, position);
+        position = 0;
+        output.flush();
+    }
+
+    private void collect(INode node) {
+        switch (node.getType()) {
+            case OBJECT:
+                IObjectNode object = (IObjectNode)node;
+                for (String key : object.keys()) {
+                    add(key);
+                    collect(object.get(key));
+                }
+                break;
+            case LIST:
+                IListNode list = (IListNode)node;
+                for (int ii = 0; ii < list.length(); ++ii) {
+                    collect(list.get(ii));
+                }
+                break;
+            case VALUE:
+                IValueNode value = (IValueNode)node;
+                if (value.getValueType() == ValueType.STRING) {
+                    add(value.stringValue());
+                }
+                break;
+        }
+    }
+
+    private void add(String string) {
+        if (!indexes.containsKey(string)) {
+            indexes.put(string, strings.size());
+            strings.add(string);
+        }
+    }
+
+    private void writeNode(INode node) throws IOException {
+        switch (node.getType()) {
+            case OBJECT:
+                IObjectNode object = (IObjectNode)node;
+                Set<String> keys = object.keys();
+                writeByte(BinaryFormat.OBJECT);
+                writeVarint(keys.size());
+                for (String key : keys) {
+                    writeVarint(indexes.get(key));
+                    writeNode(object.get(key));
+                }
+                break;
+            case LIST:
+                IListNode list = (IListNode)node;
+                writeByte(BinaryFormat.LIST);
+                writeVarint(list.length());
+                for (int ii = 0; ii < list.length(); ++ii) {
+                    writeNode(list.get(ii));
+                }
+                break;
+            case VALUE:
+                writeValue((IValueNode)node);
+                break;
+            default:
+                throw new UnsupportedOperationException("unknown type");
+        }
+    }
+
+    private void writeValue(IValueNode value) throws IOException {
+        switch (value.getValueType()) {
+            case NULL:
+                writeByte(BinaryFormat.NULL);
+                break;
+            case BYTE:
+                writeByte(BinaryFormat.BYTE);
+                writeByte(value.byteValue());
+                break;
+            case SHORT:
+                writeByte(BinaryFormat.SHORT);
+                writeSigned(value.shortValue());
+                break;
+            case INT:
+                writeByte(BinaryFormat.INT);
+                writeSigned(value.intValue());
+                break;
+            case LONG:
+                writeByte(BinaryFormat.LONG);
+                writeSigned(value.longValue());
+                break;
+            case FLOAT:
+                writeByte(BinaryFormat.FLOAT);
+                writeFixed(Float.floatToRawIntBits(value.floatValue()), 4);
+                break;
+            case DOUBLE:
+                writeByte(BinaryFormat.DOUBLE);
+                writeFixed(Double.doubleToRawLongBits(value.doubleValue()), 8);
+                break;
+            case STRING:
+                writeByte(BinaryFormat.STRING);
+                writeVarint(indexes.get(value.stringValue()));
+                break;
+            case BOOLEAN:
+                writeByte(value.booleanValue() ? BinaryFormat.TRUE : BinaryFormat.FALSE);
+                break;
+            case BIG_INTEGER:
+                byte[] bytes = value.bigIntegerValue().toByteArray();
+                writeByte(BinaryFormat.BIG_INTEGER);
+                writeVarint(bytes.length);
+                writeBytes(bytes, 0, bytes.length);
+                break;
+            default:
+                throw new UnsupportedOperationException("unknown value type");
+        }
+    }
+
+    private void writeByte(int value) throws IOException {
+        if (position == buffer.length) {
+            output.write(buffer, 0, position);
+            position = 0;
+        }
+        buffer[position++] = (byte)value;
+    }
+
+    private void writeVarint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            writeByte((int)(value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte((int)value);
+    }
+
+    private void writeSigned(long value) throws IOException {
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    private void writeFixed(long bits, int size) throws IOException {
+        for (int ii = 0; ii < size; ++ii) {
+            writeByte((int)(bits >>> (ii * 8)));
+        }
+    }
+
+    private void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+        if (length > buffer.length - position) {
+            output.write(buffer, 0, position);
+            position = 0;
+            if (length > buffer.length) {
+                output.write(bytes, offset, length);
+                return;
+            }
+        }
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+    }
+}
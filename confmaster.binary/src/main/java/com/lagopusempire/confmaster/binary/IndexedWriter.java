@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.binary;
+
+import com.lagopusempire.confmaster.core.IListNode;
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.IValueNode;
+import com.lagopusempire.confmaster.core.ValueType;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a tree in the indexed layout, children first so every record only
+ * points back at ones already written.
+ *
+ * @author Foomf
+ */
+final class IndexedWriter {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final OutputStream output;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private long flushed;
+    private final Map<String, Long> strings = new HashMap<>();
+
+    IndexedWriter(OutputStream output) {
+        this.output = output;
+    }
+
+    void write(INode root) throws IOException {
+        writeBytes(BinaryFormat.INDEXED_MAGIC);
+        long offset = writeNode(root);
+        writeFixed(offset, 8);
+        flush();
+        output.flush();
+    }
+
+    private long writeNode(INode node) throws IOException {
+        switch (node.getType()) {
+            case OBJECT:
+                return writeObject((IObjectNode)node);
+            case LIST:
+                IListNode list = (IListNode)node;
+                long[] items = new long[list.length()];
+                for (int ii = 0; ii < items.length; ++ii) {
+                    items[ii] = writeNode(list.get(ii));
+                }
+
+                long offset = offset();
+                writeByte(BinaryFormat.LIST);
+                writeFixed(items.length, 4);
+                for (long item : items) {
+                    writeFixed(item, 8);
+                }
+                return offset;
+            case VALUE:
+                return writeValue((IValueNode)node);
+            default:
+                throw new UnsupportedOperationException("unknown type");
+        }
+    }
+
+    private long writeObject(IObjectNode object) throws IOException {
+        String[] keys = object.keys().toArray(new String[0]);
+        byte[][] encoded = new byte[keys.length][];
+        Integer[] order = new Integer[keys.length];
+        for (int ii = 0; ii < keys.length; ++ii) {
+            encoded[ii] = keys[ii].getBytes(StandardCharsets.UTF_8);
+            order[ii] = ii;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(encoded[a], encoded[b]));
+
+        long[] keyOffsets = new long[keys.length];
+        long[] valueOffsets = new long[keys.length];
+        for (int ii = 0; ii < keys.length; ++ii) {
+            int index = order[ii];
+            keyOffsets[ii] = writeString(keys[index], encoded[index]);
+            valueOffsets[ii] = writeNode(object.get(keys[index]));
+        }
+
+        long offset = offset();
+        writeByte(BinaryFormat.OBJECT);
+        writeFixed(keys.length, 4);
+        for (int ii = 0; ii < keys.length; ++ii) {
+            writeFixed(keyOffsets[ii], 8);
+            writeFixed(valueOffsets[ii], 8);
+        }
+        return offset;
+    }
+
+    private long writeValue(IValueNode value) throws IOException {
+        if (value.getValueType() == ValueType.STRING) {
+            String string = value.stringValue();
+            return writeString(string, string.getBytes(StandardCharsets.UTF_8));
+        }
+
+        long offset = offset();
+        switch (value.getValueType()) {
+            case NULL:
+                writeByte(BinaryFormat.NULL);
+                break;
+            case BYTE:
+                writeByte(BinaryFormat.BYTE);
+                writeByte(value.byteValue());
+                break;
+            case SHORT:
+                writeByte(BinaryFormat.SHORT);
+                writeFixed(value.shortValue(), 2);
+                break;
+            case INT:
+                writeByte(BinaryFormat.INT);
+                writeFixed(value.intValue(), 4);
+                break;
+            case LONG:
+                writeByte(BinaryFormat.LONG);
+                writeFixed(value.longValue(), 8);
+                break;
+            case FLOAT:
+                writeByte(BinaryFormat.FLOAT);
+                writeFixed(Float.floatToRawIntBits(value.floatValue()), 4);
+                break;
+            case DOUBLE:
+                writeByte(BinaryFormat.DOUBLE);
+                writeFixed(Double.doubleToRawLongBits(value.doubleValue()), 8);
+                break;
+            case BOOLEAN:
+                writeByte(value.booleanValue() ? BinaryFormat.TRUE : BinaryFormat.FALSE);
+                break;
+            case BIG_INTEGER:
+                byte[] bytes = value.bigIntegerValue().toByteArray();
+                writeByte(BinaryFormat.BIG_INTEGER);
+                writeFixed(bytes.length, 4);
+                writeBytes(bytes);
+                break;
+            default:
+                throw new UnsupportedOperationException("unknown value type");
+        }
+        return offset;
+    }
+
+    private long writeString(String string, byte[] bytes) throws IOException {
+        Long existing = strings.get(string);
+        if (existing != null) {
+            return existing;
+        }
+
+        long offset = offset();
+        writeByte(BinaryFormat.STRING);
+        writeFixed(bytes.length, 4);
+        writeBytes(bytes);
+        strings.put(string, offset);
+        return offset;
+    }
+
+    private long offset() {
+        return flushed + position;
+    }
+
+    private void flush() throws IOException {
+        output.write(buffer, 0, position);
+        flushed += position;
+        position = 0;
+    }
+
+    private void writeByte(int value) throws IOException {
+        if (position == buffer.length) {
+            flush();
+        }
+        buffer[position++] = (byte)value;
+    }
+
+    private void writeFixed(long bits, int size) throws IOException {
+        for (int ii = 0; ii < size; ++ii) {
+            writeByte((int)(bits >>> (ii * 8)));
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - position) {
+            flush();
+            if (bytes.length > buffer.length) {
+                output.write(bytes);
+                flushed += bytes.length;
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+}
@@ -0,0 +1,279 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.binary;
+
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.NodeType;
+import com.lagopusempire.confmaster.core.ValueNode;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file in the indexed layout, mapped read only. A single mapping tops out
+ * at 2GB, so the file is mapped in segments and the rare read that crosses
+ * from one into the next is put together a byte at a time. Arrays are cut
+ * into segments the same way, so offsets past the first gigabyte find the
+ * right one.
+ *
+ * @author Foomf
+ */
+final class MappedFile {
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+    private final ByteBuffer[] segments;
+    private final long size;
+    // Every segment but the last holds exactly 1 << shift bytes.
+    private final int shift;
+    private final long mask;
+
+    private MappedFile(ByteBuffer[] segments, long size, int shift) {
+        this.segments = segments;
+        this.size = size;
+        this.shift = shift;
+        this.mask = (1L << shift) - 1;
+    }
+
+    static IObjectNode open(Path file) throws IOException {
+        MappedFile mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer[] segments = new ByteBuffer[(int)((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+            for (int ii = 0; ii < segments.length; ++ii) {
+                long start = ii * SEGMENT_SIZE;
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+                segment.order(ByteOrder.LITTLE_ENDIAN);
+                segments[ii] = segment;
+            }
+            mapped = new MappedFile(segments, size, SEGMENT_SHIFT);
+        }
+        return mapped.root();
+    }
+
+    /**
+     * Reads the layout out of a plain array, for input that isn't a file.
+     */
+    static IObjectNode wrap(byte[] data) {
+        return wrap(data, SEGMENT_SHIFT);
+    }
+
+    /**
+     * Reads the layout out of a plain array cut into segments of the given
+     * size, the same as a mapped file of that length would be.
+     */
+    static IObjectNode wrap(byte[] data, int shift) {
+        long segmentSize = 1L << shift;
+        ByteBuffer[] segments = new ByteBuffer[(int)((data.length + segmentSize - 1) >>> shift)];
+        for (int ii = 0; ii < segments.length; ++ii) {
+            int start = (int)(ii * segmentSize);
+            int length = (int)Math.min(segmentSize, data.length - start);
+            segments[ii] = ByteBuffer.wrap(data, start, length).slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new MappedFile(segments, data.length, shift).root();
+    }
+
+    private IObjectNode root() {
+        if (size < BinaryFormat.INDEXED_MAGIC.length + 8) {
+            throw new IllegalStateException("Not an indexed binary config");
+        }
+        for (int ii = 0; ii < BinaryFormat.INDEXED_MAGIC.length; ++ii) {
+            if (getByte(ii) != BinaryFormat.INDEXED_MAGIC[ii]) {
+                throw new IllegalStateException("Not an indexed binary config");
+            }
+        }
+
+        INode root = node(getLong(size - 8));
+        if (root.getType() != NodeType.OBJECT) {
+            throw new UnsupportedOperationException("Didn't read an object");
+        }
+        return (IObjectNode)root;
+    }
+
+    INode node(long offset) {
+        int tag = getByte(offset);
+        switch (tag) {
+            case BinaryFormat.OBJECT:
+                return new MappedObjectNode(this, offset, getInt(offset + 1));
+            case BinaryFormat.LIST:
+                return new MappedListNode(this, offset, getInt(offset + 1));
+            default:
+                return new MappedValueNode(this, offset, MappedValueNode.typeOf(tag));
+        }
+    }
+
+    /**
+     * Builds a free standing copy of the value at the offset.
+     */
+    ValueNode value(long offset) {
+        int tag = getByte(offset);
+        switch (tag) {
+            case BinaryFormat.NULL:
+                return new ValueNode();
+            case BinaryFormat.BYTE:
+                return new ValueNode(getByte(offset + 1));
+            case BinaryFormat.SHORT:
+                return new ValueNode((short)getFixed(offset + 1, 2));
+            case BinaryFormat.INT:
+                return new ValueNode(getInt(offset + 1));
+            case BinaryFormat.LONG:
+                return new ValueNode(getLong(offset + 1));
+            case BinaryFormat.FLOAT:
+                return new ValueNode(Float.intBitsToFloat(getInt(offset + 1)));
+            case BinaryFormat.DOUBLE:
+                return new ValueNode(Double.longBitsToDouble(getLong(offset + 1)));
+            case BinaryFormat.STRING:
+                return new ValueNode(string(offset));
+            case BinaryFormat.FALSE:
+                return new ValueNode(false);
+            case BinaryFormat.TRUE:
+                return new ValueNode(true);
+            case BinaryFormat.BIG_INTEGER:
+                return new ValueNode(bigInteger(offset));
+            default:
+                throw new IllegalStateException("Unknown tag " + tag + " in binary config");
+        }
+    }
+
+    /**
+     * Reads an integral or boolean value record, with booleans as 1 or 0.
+     */
+    long integral(long offset) {
+        int tag = getByte(offset);
+        switch (tag) {
+            case BinaryFormat.BYTE:
+                return getByte(offset + 1);
+            case BinaryFormat.SHORT:
+                return (short)getFixed(offset + 1, 2);
+            case BinaryFormat.INT:
+                return getInt(offset + 1);
+            case BinaryFormat.LONG:
+                return getLong(offset + 1);
+            case BinaryFormat.FALSE:
+                return 0;
+            case BinaryFormat.TRUE:
+                return 1;
+            default:
+                throw new IllegalStateException("Tag " + tag + " is not integral");
+        }
+    }
+
+    /**
+     * Reads a float or double value record.
+     */
+    double floating(long offset) {
+        int tag = getByte(offset);
+        switch (tag) {
+            case BinaryFormat.FLOAT:
+                return Float.intBitsToFloat(getInt(offset + 1));
+            case BinaryFormat.DOUBLE:
+                return Double.longBitsToDouble(getLong(offset + 1));
+            default:
+                throw new IllegalStateException("Tag " + tag + " is not floating point");
+        }
+    }
+
+    BigInteger bigInteger(long offset) {
+        byte[] magnitude = bytes(offset);
+        if (magnitude.length == 0) {
+            throw new IllegalStateException("Empty big integer in binary config");
+        }
+        return new BigInteger(magnitude);
+    }
+
+    String string(long offset) {
+        return new String(bytes(offset), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares the string record at the offset with the given UTF-8 bytes,
+     * the same way the writer sorted the keys.
+     */
+    int compare(long offset, byte[] key) {
+        int length = getInt(offset + 1);
+        long start = offset + 5;
+        int shared = Math.min(length, key.length);
+        for (int ii = 0; ii < shared; ++ii) {
+            int difference = (getByte(start + ii) & 0xFF) - (key[ii] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - key.length;
+    }
+
+    private byte[] bytes(long offset) {
+        int length = getInt(offset + 1);
+        if (length < 0 || offset + 5 + length > size) {
+            throw new IllegalStateException("Bad length " + length + " in binary config");
+        }
+
+        byte[] bytes = new byte[length];
+        long start = offset + 5;
+        int copied = 0;
+        while (copied < length) {
+            ByteBuffer segment = segments[(int)((start + copied) >>> shift)];
+            int index = (int)((start + copied) & mask);
+            int count = Math.min(length - copied, segment.limit() - index);
+            ByteBuffer view = segment.duplicate();
+            view.position(index);
+            view.get(bytes, copied, count);
+            copied += count;
+        }
+        return bytes;
+    }
+
+    byte getByte(long offset) {
+        return segments[(int)(offset >>> shift)].get((int)(offset & mask));
+    }
+
+    int getInt(long offset) {
+        ByteBuffer segment = segments[(int)(offset >>> shift)];
+        int index = (int)(offset & mask);
+        if (index + 4 <= segment.limit()) {
+            return segment.getInt(index);
+        }
+        return (int)getFixed(offset, 4);
+    }
+
+    long getLong(long offset) {
+        ByteBuffer segment = segments[(int)(offset >>> shift)];
+        int index = (int)(offset & mask);
+        if (index + 8 <= segment.limit()) {
+            return segment.getLong(index);
+        }
+        return getFixed(offset, 8);
+    }
+
+    private long getFixed(long offset, int size) {
+        long bits = 0;
+        for (int ii = 0; ii < size; ++ii) {
+            bits |= (long)(getByte(offset + ii) & 0xFF) << (ii * 8);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.binary;
+
+import com.lagopusempire.confmaster.core.IListNode;
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.NodeFactory;
+
+/**
+ *
+ * @author Foomf
+ */
+final class MappedListNode implements IListNode {
+    private final MappedFile file;
+    private final long items;
+    private final int length;
+
+    MappedListNode(MappedFile file, long offset, int length) {
+        this.file = file;
+        this.items = offset + BinaryFormat.HEADER_SIZE;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public INode get(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        }
+        return file.node(file.getLong(items + (long)index * BinaryFormat.ITEM_SIZE));
+    }
+
+    @Override
+    public IListNode deepClone() {
+        IListNode clone = NodeFactory.DEFAULT.createList(length);
+        for (int ii = 0; ii < length; ++ii) {
+            clone.add(get(ii).deepClone());
+        }
+        return clone;
+    }
+
+    @Override
+    public IListNode freeze() {
+        return this;
+    }
+
+    @Override
+    public boolean isFrozen() {
+        return true;
+    }
+
+    @Override
+    public long getVersion() {
+        return 0;
+    }
+
+    @Override
+    public IListNode add(INode value) {
+        throw new UnsupportedOperationException("This node is frozen!");
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.binary;
+
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.NodeFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read only object living in a mapped file. Lookups binary search the
+ * sorted entry table, and children are only read when asked for.
+ *
+ * @author Foomf
+ */
+final class MappedObjectNode implements IObjectNode {
+    private final MappedFile file;
+    private final long entries;
+    private final int size;
+
+    MappedObjectNode(MappedFile file, long offset, int size) {
+        this.file = file;
+        this.entries = offset + BinaryFormat.HEADER_SIZE;
+        this.size = size;
+    }
+
+    @Override
+    public INode get(String key) {
+        byte[] wanted = key.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long entry = entries + (long)middle * BinaryFormat.ENTRY_SIZE;
+            int comparison = file.compare(file.getLong(entry), wanted);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return file.node(file.getLong(entry + 8));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Set<String> keys() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<String>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (next >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        long entry = entries + (long)next++ * BinaryFormat.ENTRY_SIZE;
+                        return file.string(file.getLong(entry));
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return key instanceof String && get((String)key) != null;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public IObjectNode deepClone() {
+        IObjectNode clone = NodeFactory.DEFAULT.createObject(size);
+        for (String key : keys()) {
+            clone.set(key, get(key).deepClone());
+        }
+        return clone;
+    }
+
+    @Override
+    public IObjectNode freeze() {
+        return this;
+    }
+
+    @Override
+    public boolean isFrozen() {
+        return true;
+    }
+
+    @Override
+    public long getVersion() {
+        return 0;
+    }
+
+    @Override
+    public IObjectNode unset(String key) {
+        throw new UnsupportedOperationException("This node is frozen!");
+    }
+
+    @Override
+    public IObjectNode set(String key, INode value) {
+        throw new UnsupportedOperationException("This node is frozen!");
+    }
+}
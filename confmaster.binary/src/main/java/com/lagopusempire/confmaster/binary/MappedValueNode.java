@@ -0,0 +1,384 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.binary;
+
+import com.lagopusempire.confmaster.core.IValueNode;
+import com.lagopusempire.confmaster.core.ValueNode;
+import com.lagopusempire.confmaster.core.ValueType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * A read only value living in a mapped file. Its type comes from the tag,
+ * everything else is decoded from the file on each read. Typed reads go
+ * straight to the record and follow the same conversions as
+ * {@link ValueNode}; only {@link #deepClone()} builds a node.
+ *
+ * @author Foomf
+ */
+final class MappedValueNode implements IValueNode {
+    private final MappedFile file;
+    private final long offset;
+    private final ValueType type;
+
+    MappedValueNode(MappedFile file, long offset, ValueType type) {
+        this.file = file;
+        this.offset = offset;
+        this.type = type;
+    }
+
+    static ValueType typeOf(int tag) {
+        switch (tag) {
+            case BinaryFormat.NULL:
+                return ValueType.NULL;
+            case BinaryFormat.BYTE:
+                return ValueType.BYTE;
+            case BinaryFormat.SHORT:
+                return ValueType.SHORT;
+            case BinaryFormat.INT:
+                return ValueType.INT;
+            case BinaryFormat.LONG:
+                return ValueType.LONG;
+            case BinaryFormat.FLOAT:
+                return ValueType.FLOAT;
+            case BinaryFormat.DOUBLE:
+                return ValueType.DOUBLE;
+            case BinaryFormat.STRING:
+                return ValueType.STRING;
+            case BinaryFormat.FALSE:
+            case BinaryFormat.TRUE:
+                return ValueType.BOOLEAN;
+            case BinaryFormat.BIG_INTEGER:
+                return ValueType.BIG_INTEGER;
+            default:
+                throw new IllegalStateException("Unknown tag " + tag + " in binary config");
+        }
+    }
+
+    private boolean isIntegral() {
+        switch (type) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case BOOLEAN:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean isFloating() {
+        return type == ValueType.FLOAT || type == ValueType.DOUBLE;
+    }
+
+    private long integral() {
+        return file.integral(offset);
+    }
+
+    private double floating() {
+        return file.floating(offset);
+    }
+
+    private String string() {
+        return file.string(offset);
+    }
+
+    private BigInteger big() {
+        return file.bigInteger(offset);
+    }
+
+    // The same readings ValueNode takes of a string.
+    private long parseIntegral(long min, long max, String message) {
+        try {
+            long value = Long.decode(string());
+            if (value >= min && value <= max) {
+                return value;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalStateException(message);
+    }
+
+    private double parseFloating(String message) {
+        try {
+            return Double.parseDouble(string());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    @Override
+    public ValueType getValueType() {
+        return type;
+    }
+
+    @Override
+    public ValueNode deepClone() {
+        return file.value(offset);
+    }
+
+    @Override
+    public IValueNode freeze() {
+        return this;
+    }
+
+    @Override
+    public boolean isFrozen() {
+        return true;
+    }
+
+    @Override
+    public long getVersion() {
+        return 0;
+    }
+
+    @Override
+    public Number getNumber() {
+        switch (type) {
+            case BYTE:
+                return (byte)integral();
+            case SHORT:
+                return (short)integral();
+            case INT:
+            case BOOLEAN:
+                return (int)integral();
+            case LONG:
+                return integral();
+            case FLOAT:
+                return (float)floating();
+            case DOUBLE:
+                return floating();
+            case BIG_INTEGER:
+                return big();
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public byte byteValue() {
+        if (isIntegral()) {
+            return (byte)integral();
+        } else if (isFloating()) {
+            return (byte)floating();
+        } else if (type == ValueType.BIG_INTEGER) {
+            return big().byteValue();
+        } else if (type == ValueType.STRING) {
+            return (byte)parseIntegral(Byte.MIN_VALUE, Byte.MAX_VALUE, "This node is not a byte!");
+        }
+        throw new IllegalStateException("This node is not a byte!");
+    }
+
+    @Override
+    public short shortValue() {
+        if (isIntegral()) {
+            return (short)integral();
+        } else if (isFloating()) {
+            return (short)floating();
+        } else if (type == ValueType.BIG_INTEGER) {
+            return big().shortValue();
+        } else if (type == ValueType.STRING) {
+            return (short)parseIntegral(Short.MIN_VALUE, Short.MAX_VALUE, "This node is not a short!");
+        }
+        throw new IllegalStateException("This node is not a short!");
+    }
+
+    @Override
+    public int intValue() {
+        if (isIntegral()) {
+            return (int)integral();
+        } else if (isFloating()) {
+            return (int)floating();
+        } else if (type == ValueType.BIG_INTEGER) {
+            return big().intValue();
+        } else if (type == ValueType.STRING) {
+            return (int)parseIntegral(Integer.MIN_VALUE, Integer.MAX_VALUE, "This node is not an int!");
+        }
+        throw new IllegalStateException("This node is not an int!");
+    }
+
+    @Override
+    public long longValue() {
+        if (isIntegral()) {
+            return integral();
+        } else if (isFloating()) {
+            return (long)floating();
+        } else if (type == ValueType.BIG_INTEGER) {
+            return big().longValue();
+        } else if (type == ValueType.STRING) {
+            return parseIntegral(Long.MIN_VALUE, Long.MAX_VALUE, "This node is not a long!");
+        }
+        throw new IllegalStateException("This node is not a long!");
+    }
+
+    @Override
+    public float floatValue() {
+        if (isIntegral()) {
+            return (float)integral();
+        } else if (isFloating()) {
+            return (float)floating();
+        } else if (type == ValueType.BIG_INTEGER) {
+            return big().floatValue();
+        } else if (type == ValueType.STRING) {
+            try {
+                return Float.parseFloat(string());
+            } catch (NumberFormatException e) {
+                throw new IllegalStateException("This node is not a float!");
+            }
+        }
+        throw new IllegalStateException("This node is not a float!");
+    }
+
+    @Override
+    public double doubleValue() {
+        if (isIntegral()) {
+            return (double)integral();
+        } else if (isFloating()) {
+            return floating();
+        } else if (type == ValueType.BIG_INTEGER) {
+            return big().doubleValue();
+        } else if (type == ValueType.STRING) {
+            return parseFloating("This node is not a double!");
+        }
+        throw new IllegalStateException("This node is not a double!");
+    }
+
+    @Override
+    public boolean booleanValue() {
+        if (type == ValueType.BOOLEAN) {
+            return integral() != 0;
+        } else if (isIntegral() || isFloating()) {
+            return byteValue() != 0;
+        } else if (type == ValueType.BIG_INTEGER) {
+            return big().signum() != 0;
+        } else if (type == ValueType.STRING) {
+            return Boolean.parseBoolean(string());
+        }
+        throw new IllegalStateException("This node is not a boolean!");
+    }
+
+    @Override
+    public char charValue() {
+        if (type == ValueType.STRING) {
+            String string = string();
+            if (string.length() > 0) {
+                return string.charAt(0);
+            }
+        } else if (type != ValueType.NULL) {
+            return (char)byteValue();
+        }
+        throw new IllegalStateException("This node is not a char!");
+    }
+
+    @Override
+    public String stringValue() {
+        if (isIntegral()) {
+            return Long.toString(integral());
+        }
+        switch (type) {
+            case STRING:
+                return string();
+            case FLOAT:
+                return Float.toString((float)floating());
+            case DOUBLE:
+                return Double.toString(floating());
+            case BIG_INTEGER:
+                return big().toString();
+            default:
+                throw new IllegalStateException("This node is not a string!");
+        }
+    }
+
+    @Override
+    public BigInteger bigIntegerValue() {
+        if (isIntegral()) {
+            return BigInteger.valueOf(integral());
+        } else if (isFloating()) {
+            double value = floating();
+            if (Double.isFinite(value)) {
+                return BigDecimal.valueOf(value).toBigInteger();
+            }
+        } else if (type == ValueType.BIG_INTEGER) {
+            return big();
+        } else if (type == ValueType.STRING) {
+            String string = string();
+            try {
+                return BigInteger.valueOf(Long.decode(string));
+            } catch (NumberFormatException ignored) {
+            }
+            try {
+                return new BigInteger(string);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        throw new IllegalStateException("This node is not an integer!");
+    }
+
+    @Override
+    public void set(byte value) {
+        throw new UnsupportedOperationException("This node is frozen!");
+    }
+
+    @Override
+    public void set(short value) {
+        throw new UnsupportedOperationException("This node is frozen!");
+    }
+
+    @Override
+    public void set(int value) {
+        throw new UnsupportedOperationException("This node is frozen!");
+    }
+
+    @Override
+    public void set(long value) {
+        throw new UnsupportedOperationException("This node is frozen!");
+    }
+
+    @Override
+    public void set(float value) {
+        throw new UnsupportedOperationException("This node is frozen!");
+    }
+
+    @Override
+    public void set(double value) {
+        throw new UnsupportedOperationException("This node is frozen!");
+    }
+
+    @Override
+    public void set(String value) {
+        throw new UnsupportedOperationException("This node is frozen!");
+    }
+
+    @Override
+    public void set(boolean value) {
+        throw new UnsupportedOperationException("This node is frozen!");
+    }
+
+    @Override
+    public void set(char value) {
+        throw new UnsupportedOperationException("This node is frozen!");
+    }
+
+    @Override
+    public void set(BigInteger value) {
+        throw new UnsupportedOperationException("This node is frozen!");
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.binary;
+
+import com.lagopusempire.confmaster.core.IListNode;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.NodeFactory;
+import com.lagopusempire.confmaster.core.ValueNode;
+import com.lagopusempire.confmaster.core.ValueType;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Foomf
+ */
+public class BinaryReaderTest {
+    private static IObjectNode sample() {
+        IObjectNode root = NodeFactory.DEFAULT.createObject(0);
+        root.set("byte", new ValueNode((byte)-7));
+        root.set("short", new ValueNode((short)-300));
+        root.set("int", new ValueNode(123456));
+        root.set("long", new ValueNode(-1L << 40));
+        root.set("float", new ValueNode(1.5f));
+        root.set("double", new ValueNode(-2.25));
+        root.set("true", new ValueNode(true));
+        root.set("false", new ValueNode(false));
+        root.set("null", new ValueNode());
+        root.set("big", new ValueNode(BigInteger.TEN.pow(40).negate()));
+        root.set("string", new ValueNode("héllo"));
+
+        char[] chars = new char[20000];
+        Arrays.fill(chars, 'x');
+        root.set("long string", new ValueNode(new String(chars)));
+
+        IListNode list = NodeFactory.DEFAULT.createList(0);
+        for (int ii = 0; ii < 3000; ++ii) {
+            list.add(new ValueNode(ii));
+        }
+        root.set("list", list);
+
+        IObjectNode nested = NodeFactory.DEFAULT.createObject(0);
+        nested.set("string", new ValueNode("héllo"));
+        root.set("nested", nested);
+        return root;
+    }
+
+    private static void assertFails(byte[] data, String message) {
+        try {
+            BinaryBackend.DeserializeObject(data);
+            fail("Read a corrupt config");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    // Hands out at most a few bytes per read, to exercise refilling.
+    private static InputStream trickle(byte[] data) {
+        return new FilterInputStream(new ByteArrayInputStream(data)) {
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 3));
+            }
+        };
+    }
+
+    private static byte[] header(int... rest) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        output.write(BinaryFormat.MAGIC, 0, BinaryFormat.MAGIC.length);
+        for (int value : rest) {
+            output.write(value);
+        }
+        return output.toByteArray();
+    }
+
+    @Test
+    public void roundTrips() throws IOException {
+        IObjectNode root = sample();
+        byte[] data = BinaryBackend.Serialize(root);
+
+        IObjectNode read = BinaryBackend.Load(trickle(data));
+        assertArrayEquals(data, BinaryBackend.Serialize(read));
+
+        assertEquals(ValueType.BYTE, read.getValue("byte").getValueType());
+        assertEquals(-7, read.getValue("byte").byteValue());
+        assertEquals(-300, read.getValue("short").shortValue());
+        assertEquals(123456, read.getValue("int").intValue());
+        assertEquals(-1L << 40, read.getValue("long").longValue());
+        assertEquals(1.5f, read.getValue("float").floatValue(), 0);
+        assertEquals(-2.25, read.getValue("double").doubleValue(), 0);
+        assertTrue(read.getValue("true").booleanValue());
+        assertEquals(ValueType.NULL, read.getValue("null").getValueType());
+        assertEquals(BigInteger.TEN.pow(40).negate(), read.getValue("big").bigIntegerValue());
+        assertEquals("héllo", read.getObject("nested").getValue("string").stringValue());
+        assertEquals(20000, read.getValue("long string").stringValue().length());
+        assertEquals(2999, read.getList("list").getValue(2999).intValue());
+    }
+
+    @Test
+    public void cutShortInputFails() {
+        byte[] data = BinaryBackend.Serialize(sample());
+        for (int length : new int[] { 0, 2, BinaryFormat.MAGIC.length, 100, data.length / 2, data.length - 1 }) {
+            assertFails(Arrays.copyOf(data, length), "cut short");
+        }
+    }
+
+    @Test
+    public void corruptLengthsFail() {
+        // A string table claiming far more strings than there are bytes.
+        assertFails(header(0xFF, 0xFF, 0xFF, 0xFF, 0x07, 1, 'a'), "cut short");
+        // One string claiming to be two gigabytes long.
+        assertFails(header(1, 0xFF, 0xFF, 0xFF, 0xFF, 0x07, 'a'), "cut short");
+        // A list claiming more items than there are bytes.
+        assertFails(header(0, BinaryFormat.LIST, 0xFF, 0xFF, 0xFF, 0x07, BinaryFormat.NULL), "cut short");
+        // A count past what an int can hold.
+        assertFails(header(0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x01), "Bad count");
+        // A string index past the table.
+        assertFails(header(0, BinaryFormat.OBJECT, 1, 5, BinaryFormat.NULL), "not in the table");
+    }
+
+    @Test
+    public void unknownTagFails() {
+        assertFails(header(0, 99), "Unknown tag 99");
+    }
+
+    @Test
+    public void emptyBigIntegerFails() {
+        assertFails(header(0, BinaryFormat.BIG_INTEGER, 0), "Empty big integer");
+    }
+
+    @Test
+    public void wrongMagicFails() {
+        assertFails(new byte[] { 'C', 'M', 'X', 1, 0 }, "Not a binary config");
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.binary;
+
+import com.lagopusempire.confmaster.core.IListNode;
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.IValueNode;
+import com.lagopusempire.confmaster.core.NodeFactory;
+import com.lagopusempire.confmaster.core.ValueNode;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.function.Function;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Foomf
+ */
+public class MappedFileTest {
+    private static final ValueNode[] VALUES = {
+        new ValueNode(),
+        new ValueNode((byte)-5),
+        new ValueNode((short)1000),
+        new ValueNode(-70000),
+        new ValueNode(1L << 40),
+        new ValueNode(2.75f),
+        new ValueNode(-1e300),
+        new ValueNode(Double.NaN),
+        new ValueNode(true),
+        new ValueNode(false),
+        new ValueNode(BigInteger.TWO.pow(70).add(BigInteger.valueOf(300))),
+        new ValueNode("12"),
+        new ValueNode("0x1F"),
+        new ValueNode("-129"),
+        new ValueNode("40000"),
+        new ValueNode("99999999999999999999"),
+        new ValueNode("1.5"),
+        new ValueNode("true"),
+        new ValueNode("abc"),
+        new ValueNode(""),
+    };
+
+    private static byte[] indexed(IObjectNode root) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryBackend.SerializeIndexed(root, output);
+        return output.toByteArray();
+    }
+
+    private static IObjectNode valueTree() {
+        IObjectNode root = NodeFactory.DEFAULT.createObject(0);
+        for (int ii = 0; ii < VALUES.length; ++ii) {
+            root.set("v" + ii, VALUES[ii]);
+        }
+        return root;
+    }
+
+    // Either the same value or the same exception.
+    private static Object read(IValueNode value, Function<IValueNode, Object> getter) {
+        try {
+            return getter.apply(value);
+        } catch (IllegalStateException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static void assertSameReads(IValueNode expected, IValueNode actual) {
+        assertEquals(expected.getValueType(), actual.getValueType());
+        assertEquals(expected.getNumber(), actual.getNumber());
+        List<Function<IValueNode, Object>> getters = List.of(
+                IValueNode::byteValue, IValueNode::shortValue, IValueNode::intValue,
+                IValueNode::longValue, IValueNode::floatValue, IValueNode::doubleValue,
+                IValueNode::booleanValue, IValueNode::charValue, IValueNode::stringValue,
+                IValueNode::bigIntegerValue);
+        String name = String.valueOf(read(expected, IValueNode::stringValue));
+        for (Function<IValueNode, Object> getter : getters) {
+            assertEquals(name, read(expected, getter), read(actual, getter));
+        }
+    }
+
+    @Test
+    public void typedReadsMatchValueNodes() throws IOException {
+        IObjectNode mapped = MappedFile.wrap(indexed(valueTree()));
+        for (int ii = 0; ii < VALUES.length; ++ii) {
+            IValueNode value = mapped.getValue("v" + ii);
+            assertTrue(value instanceof MappedValueNode);
+            assertSameReads(VALUES[ii], value);
+        }
+    }
+
+    @Test
+    public void deepCloneIsAWritableValueNode() throws IOException {
+        IObjectNode mapped = MappedFile.wrap(indexed(valueTree()));
+        for (int ii = 0; ii < VALUES.length; ++ii) {
+            IValueNode clone = (IValueNode)mapped.getValue("v" + ii).deepClone();
+            assertTrue(clone instanceof ValueNode);
+            assertFalse(clone.isFrozen());
+            assertSameReads(VALUES[ii], clone);
+        }
+    }
+
+    private static void assertSameTree(INode expected, INode actual) {
+        assertEquals(expected.getType(), actual.getType());
+        switch (expected.getType()) {
+            case OBJECT:
+                IObjectNode object = (IObjectNode)expected;
+                assertEquals(object.keys(), ((IObjectNode)actual).keys());
+                for (String key : object.keys()) {
+                    assertSameTree(object.get(key), ((IObjectNode)actual).get(key));
+                }
+                break;
+            case LIST:
+                IListNode list = (IListNode)expected;
+                assertEquals(list.length(), ((IListNode)actual).length());
+                for (int ii = 0; ii < list.length(); ++ii) {
+                    assertSameTree(list.get(ii), ((IListNode)actual).get(ii));
+                }
+                break;
+            default:
+                assertSameReads((IValueNode)expected, (IValueNode)actual);
+                break;
+        }
+    }
+
+    @Test
+    public void readsCrossingSegmentsMatch() throws IOException {
+        IObjectNode root = valueTree();
+        IListNode list = NodeFactory.DEFAULT.createList(0);
+        for (int ii = 0; ii < 100; ++ii) {
+            list.add(new ValueNode((long)ii << 35));
+        }
+        root.set("list", list);
+        IObjectNode nested = NodeFactory.DEFAULT.createObject(0);
+        nested.set("long string", new ValueNode("a string long enough to span several small segments"));
+        root.set("nested", nested);
+
+        byte[] data = indexed(root);
+        for (int shift = 3; shift <= 8; ++shift) {
+            assertSameTree(root, MappedFile.wrap(data, shift));
+        }
+    }
+}
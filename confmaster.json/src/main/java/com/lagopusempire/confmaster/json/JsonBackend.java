@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.json;
+
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.INodeFactory;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.NodeFactory;
+import com.lagopusempire.confmaster.core.NodeType;
+import com.lagopusempire.confmaster.core.backend.AtomicFiles;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ *
+ * @author Foomf
+ */
+public class JsonBackend {
+    private static final int INDENT = 2;
+
+    public static String Serialize(INode root) {
+        StringWriter writer = new StringWriter();
+        try {
+            Serialize(root, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    public static void Serialize(INode root, Writer writer) throws IOException {
+        new JsonWriter(writer, INDENT).write(root);
+    }
+
+    /**
+     * Writes the tree on a single line with no whitespace.
+     */
+    public static void SerializeCompact(INode root, Writer writer) throws IOException {
+        new JsonWriter(writer, 0).write(root);
+    }
+
+    public static IObjectNode DeserializeObject(String json) {
+        return DeserializeObject(json, NodeFactory.DEFAULT);
+    }
+
+    public static IObjectNode DeserializeObject(String json, INodeFactory factory) {
+        try {
+            return Load(new StringReader(json), factory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static IObjectNode Load(Reader reader) throws IOException {
+        return Load(reader, NodeFactory.DEFAULT);
+    }
+
+    public static IObjectNode Load(Reader reader, INodeFactory factory) throws IOException {
+        INode root = new JsonReader(reader, factory).read();
+        if (root.getType() != NodeType.OBJECT) {
+            throw new UnsupportedOperationException("Didn't read an object");
+        }
+        return (IObjectNode)root;
+    }
+
+    public static IObjectNode Load(ReadableByteChannel channel) throws IOException {
+        return Load(channel, NodeFactory.DEFAULT);
+    }
+
+    public static IObjectNode Load(ReadableByteChannel channel, INodeFactory factory) throws IOException {
+        return Load(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1), factory);
+    }
+
+    public static IObjectNode Load(Path file) throws IOException {
+        return Load(file, NodeFactory.DEFAULT);
+    }
+
+    public static IObjectNode Load(Path file, INodeFactory factory) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return Load(reader, factory);
+        }
+    }
+
+    public static void Write(INode root, Path file) throws IOException {
+        AtomicFiles.writeText(file, writer -> Serialize(root, writer));
+    }
+}
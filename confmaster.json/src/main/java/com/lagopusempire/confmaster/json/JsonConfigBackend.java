@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.json;
+
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.INodeFactory;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.backend.IConfigBackend;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ *
+ * @author Foomf
+ */
+public final class JsonConfigBackend implements IConfigBackend {
+    private static final Set<String> EXTENSIONS = Set.of("json");
+
+    @Override
+    public String getName() {
+        return "json";
+    }
+
+    @Override
+    public Set<String> getExtensions() {
+        return EXTENSIONS;
+    }
+
+    // A document that opens with a brace after any BOM and whitespace.
+    @Override
+    public int detect(byte[] head, int length) {
+        int ii = 0;
+        if (length >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF) {
+            ii = 3;
+        }
+        for (; ii < length; ++ii) {
+            byte b = head[ii];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return b == '{' ? 50 : 0;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public IObjectNode read(InputStream input, INodeFactory factory) throws IOException {
+        return JsonBackend.Load(new InputStreamReader(input, StandardCharsets.UTF_8), factory);
+    }
+
+    @Override
+    public void write(INode root, OutputStream output) throws IOException {
+        Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+        JsonBackend.Serialize(root, writer);
+        writer.flush();
+    }
+}
@@ -0,0 +1,349 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.json;
+
+import com.lagopusempire.confmaster.core.IListNode;
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.INodeFactory;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.ValueNode;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigInteger;
+
+/**
+ * Reads JSON straight into nodes. It pulls characters through its own
+ * buffer and builds each node as soon as its text has been read, so there
+ * is no token list or intermediate tree. Strings without escapes are cut
+ * straight out of the buffer, and integers are accumulated while they are
+ * scanned.
+ *
+ * @author Foomf
+ */
+final class JsonReader {
+    private static final int BUFFER_SIZE = 8192;
+    // Any integer with this many digits or fewer fits in a long.
+    private static final int LONG_DIGITS = 18;
+
+    private final Reader input;
+    private final INodeFactory factory;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder scratch = new StringBuilder();
+    private int position;
+    private int limit;
+    private long consumed;
+
+    JsonReader(Reader input, INodeFactory factory) {
+        this.input = input;
+        this.factory = factory;
+    }
+
+    INode read() throws IOException {
+        if (peek() == '\uFEFF') {
+            ++position;
+        }
+
+        INode root = readValue();
+        skipWhitespace();
+        if (peek() != -1) {
+            throw error("Unexpected data after the document");
+        }
+        return root;
+    }
+
+    private INode readValue() throws IOException {
+        int c = nextToken();
+        switch (c) {
+            case '{':
+                return readObject();
+            case '[':
+                return readList();
+            case '"':
+                return factory.createValue(readString());
+            case 't':
+                expect("rue");
+                return new ValueNode(true);
+            case 'f':
+                expect("alse");
+                return new ValueNode(false);
+            case 'n':
+                expect("ull");
+                return new ValueNode();
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return readNumber(c);
+                }
+                throw unexpected(c);
+        }
+    }
+
+    private IObjectNode readObject() throws IOException {
+        IObjectNode object = factory.createObject(0);
+        int c = nextToken();
+        if (c == '}') {
+            return object;
+        }
+
+        while (true) {
+            if (c != '"') {
+                throw unexpected(c);
+            }
+            String key = readString();
+            c = nextToken();
+            if (c != ':') {
+                throw unexpected(c);
+            }
+            object.set(factory.createKey(key), readValue());
+
+            c = nextToken();
+            if (c == '}') {
+                return object;
+            } else if (c != ',') {
+                throw unexpected(c);
+            }
+            c = nextToken();
+        }
+    }
+
+    private IListNode readList() throws IOException {
+        IListNode list = factory.createList(0);
+        skipWhitespace();
+        if (peek() == ']') {
+            ++position;
+            return list;
+        }
+
+        while (true) {
+            list.add(readValue());
+            int c = nextToken();
+            if (c == ']') {
+                return list;
+            } else if (c != ',') {
+                throw unexpected(c);
+            }
+        }
+    }
+
+    private String readString() throws IOException {
+        scratch.setLength(0);
+        while (true) {
+            int start = position;
+            while (position < limit) {
+                char c = buffer[position];
+                if (c == '"' || c == '\\' || c < 0x20) {
+                    break;
+                }
+                ++position;
+            }
+
+            if (position < limit && buffer[position] == '"' && scratch.length() == 0) {
+                return new String(buffer, start, position++ - start);
+            }
+            scratch.append(buffer, start, position - start);
+
+            if (position == limit) {
+                if (!fill()) {
+                    throw error("Unterminated string");
+                }
+                continue;
+            }
+
+            char c = buffer[position++];
+            if (c == '"') {
+                return scratch.toString();
+            } else if (c == '\\') {
+                scratch.append(readEscape());
+            } else {
+                throw error("Control character in string");
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int c = next();
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return (char)c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int value = 0;
+                for (int ii = 0; ii < 4; ++ii) {
+                    int hex = next();
+                    int digit = Character.digit(hex, 16);
+                    if (hex == -1) {
+                        throw unexpected(hex);
+                    } else if (digit < 0) {
+                        throw error("Bad unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char)value;
+            case -1:
+                throw unexpected(c);
+            default:
+                throw error("Bad escape");
+        }
+    }
+
+    private INode readNumber(int first) throws IOException {
+        scratch.setLength(0);
+        scratch.append((char)first);
+        boolean negative = first == '-';
+        int c = first;
+        if (negative) {
+            c = next();
+            scratch.append((char)c);
+            if (c < '0' || c > '9') {
+                throw unexpected(c);
+            }
+        }
+
+        long value = c - '0';
+        int digits = 1;
+        if (c != '0') {
+            while (isDigit(peek())) {
+                c = next();
+                scratch.append((char)c);
+                value = value * 10 + (c - '0');
+                ++digits;
+            }
+        }
+
+        boolean floating = false;
+        if (peek() == '.') {
+            floating = true;
+            scratch.append((char)next());
+            readDigits();
+        }
+        if (peek() == 'e' || peek() == 'E') {
+            floating = true;
+            scratch.append((char)next());
+            if (peek() == '+' || peek() == '-') {
+                scratch.append((char)next());
+            }
+            readDigits();
+        }
+
+        if (floating) {
+            return new ValueNode(Double.parseDouble(scratch.toString()));
+        } else if (digits > LONG_DIGITS) {
+            BigInteger big = new BigInteger(scratch.toString());
+            if (big.bitLength() < 64) {
+                return new ValueNode(big.longValue());
+            }
+            return new ValueNode(big);
+        }
+
+        value = negative ? -value : value;
+        if (value == (int)value) {
+            return new ValueNode((int)value);
+        }
+        return new ValueNode(value);
+    }
+
+    private void readDigits() throws IOException {
+        if (!isDigit(peek())) {
+            throw unexpected(peek());
+        }
+        while (isDigit(peek())) {
+            scratch.append((char)next());
+        }
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private void expect(String rest) throws IOException {
+        for (int ii = 0; ii < rest.length(); ++ii) {
+            int c = next();
+            if (c != rest.charAt(ii)) {
+                throw unexpected(c);
+            }
+        }
+    }
+
+    private int nextToken() throws IOException {
+        skipWhitespace();
+        return next();
+    }
+
+    private void skipWhitespace() throws IOException {
+        while (true) {
+            while (position < limit) {
+                char c = buffer[position];
+                if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                    return;
+                }
+                ++position;
+            }
+            if (!fill()) {
+                return;
+            }
+        }
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private int next() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private boolean fill() throws IOException {
+        consumed += limit;
+        position = 0;
+        limit = input.read(buffer, 0, buffer.length);
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+
+    private IllegalStateException unexpected(int c) {
+        if (c == -1) {
+            return error("Unexpected end of input");
+        }
+        return error("Unexpected '" + (char)c + "'");
+    }
+
+    private IllegalStateException error(String message) {
+        return new IllegalStateException(message + " at character " + (consumed + position));
+    }
+}
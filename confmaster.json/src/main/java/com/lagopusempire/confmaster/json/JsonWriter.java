@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.json;
+
+import com.lagopusempire.confmaster.core.IListNode;
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.IValueNode;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Writes nodes as JSON, straight to the writer as it walks the tree. Keys
+ * come out sorted, the same as the YAML backend writes them.
+ *
+ * @author Foomf
+ */
+final class JsonWriter {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer output;
+    private final int indent;
+
+    /**
+     * @param indent spaces per level, or 0 to write everything on one line.
+     */
+    JsonWriter(Writer output, int indent) {
+        this.output = output;
+        this.indent = indent;
+    }
+
+    void write(INode root) throws IOException {
+        writeNode(root, 0);
+        if (indent > 0) {
+            output.write('\n');
+        }
+    }
+
+    private void writeNode(INode node, int depth) throws IOException {
+        switch (node.getType()) {
+            case OBJECT:
+                writeObject((IObjectNode)node, depth);
+                break;
+            case LIST:
+                writeList((IListNode)node, depth);
+                break;
+            case VALUE:
+                writeValue((IValueNode)node);
+                break;
+            default:
+                throw new UnsupportedOperationException("unknown type");
+        }
+    }
+
+    private void writeObject(IObjectNode object, int depth) throws IOException {
+        String[] keys = object.keys().toArray(new String[0]);
+        if (keys.length == 0) {
+            output.write("{}");
+            return;
+        }
+
+        Arrays.sort(keys);
+        output.write('{');
+        for (int ii = 0; ii < keys.length; ++ii) {
+            if (ii > 0) {
+                output.write(',');
+            }
+            newLine(depth + 1);
+            writeString(keys[ii]);
+            output.write(indent > 0 ? ": " : ":");
+            writeNode(object.get(keys[ii]), depth + 1);
+        }
+        newLine(depth);
+        output.write('}');
+    }
+
+    private void writeList(IListNode list, int depth) throws IOException {
+        if (list.length() == 0) {
+            output.write("[]");
+            return;
+        }
+
+        output.write('[');
+        for (int ii = 0; ii < list.length(); ++ii) {
+            if (ii > 0) {
+                output.write(',');
+            }
+            newLine(depth + 1);
+            writeNode(list.get(ii), depth + 1);
+        }
+        newLine(depth);
+        output.write(']');
+    }
+
+    private void newLine(int depth) throws IOException {
+        if (indent > 0) {
+            output.write('\n');
+            for (int ii = depth * indent; ii > 0; --ii) {
+                output.write(' ');
+            }
+        }
+    }
+
+    private void writeValue(IValueNode value) throws IOException {
+        switch (value.getValueType()) {
+            case NULL:
+                output.write("null");
+                break;
+            case FLOAT:
+            case DOUBLE:
+                double number = value.doubleValue();
+                if (Double.isNaN(number) || Double.isInfinite(number)) {
+                    throw new UnsupportedOperationException("JSON can't hold " + number);
+                }
+                output.write(value.stringValue());
+                break;
+            case STRING:
+                writeString(value.stringValue());
+                break;
+            case BOOLEAN:
+                output.write(value.booleanValue() ? "true" : "false");
+                break;
+            default:
+                output.write(value.stringValue());
+                break;
+        }
+    }
+
+    private void writeString(String string) throws IOException {
+        output.write('"');
+        int start = 0;
+        for (int ii = 0; ii < string.length(); ++ii) {
+            char c = string.charAt(ii);
+            if (c != '"' && c != '\\' && c >= 0x20) {
+                continue;
+            }
+
+            output.write(string, start, ii - start);
+            start = ii + 1;
+            switch (c) {
+                case '"':
+                    output.write("\\\"");
+                    break;
+                case '\\':
+                    output.write("\\\\");
+                    break;
+                case '\n':
+                    output.write("\\n");
+                    break;
+                case '\r':
+                    output.write("\\r");
+                    break;
+                case '\t':
+                    output.write("\\t");
+                    break;
+                default:
+                    output.write("\\u00");
+                    output.write(HEX[c >> 4]);
+                    output.write(HEX[c & 0xF]);
+                    break;
+            }
+        }
+        output.write(string, start, string.length() - start);
+        output.write('"');
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.json;
+
+import com.lagopusempire.confmaster.core.IListNode;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.NodeFactory;
+import com.lagopusempire.confmaster.core.ValueNode;
+import com.lagopusempire.confmaster.core.ValueType;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Foomf
+ */
+public class JsonReaderTest {
+    private static IObjectNode sample() {
+        IObjectNode root = NodeFactory.DEFAULT.createObject(0);
+        root.set("int", new ValueNode(-42));
+        root.set("long", new ValueNode(1L << 50));
+        root.set("double", new ValueNode(0.125));
+        root.set("true", new ValueNode(true));
+        root.set("false", new ValueNode(false));
+        root.set("null", new ValueNode());
+        root.set("big", new ValueNode(BigInteger.TEN.pow(30)));
+        root.set("escapes", new ValueNode("quote \" slash \\ tab \t line\n bell \u0007 é 😀"));
+
+        char[] chars = new char[20000];
+        Arrays.fill(chars, 'x');
+        chars[8190] = '"';
+        chars[8191] = '\\';
+        root.set("long string", new ValueNode(new String(chars)));
+
+        IListNode list = NodeFactory.DEFAULT.createList(0);
+        list.add(new ValueNode(1));
+        list.add(NodeFactory.DEFAULT.createList(0));
+        list.add(NodeFactory.DEFAULT.createObject(0));
+        list.add(new ValueNode("two"));
+        root.set("list", list);
+
+        IObjectNode nested = NodeFactory.DEFAULT.createObject(0);
+        nested.set("key with spaces", new ValueNode(""));
+        root.set("nested", nested);
+        return root;
+    }
+
+    private static String compact(IObjectNode root) throws IOException {
+        StringWriter writer = new StringWriter();
+        JsonBackend.SerializeCompact(root, writer);
+        return writer.toString();
+    }
+
+    // Hands out at most a few characters per read, to exercise refilling.
+    private static Reader trickle(String json) {
+        return new FilterReader(new StringReader(json)) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 3));
+            }
+        };
+    }
+
+    private static void assertFails(String json, String message) {
+        try {
+            JsonBackend.DeserializeObject(json);
+            fail("Read bad JSON: " + json);
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    @Test
+    public void roundTrips() throws IOException {
+        IObjectNode root = sample();
+        String json = JsonBackend.Serialize(root);
+        IObjectNode read = JsonBackend.Load(trickle(json));
+        assertEquals(json, JsonBackend.Serialize(read));
+        assertEquals(compact(root), compact(JsonBackend.DeserializeObject(compact(root))));
+
+        assertEquals(ValueType.BOOLEAN, read.getValue("true").getValueType());
+        assertTrue(read.getValue("true").booleanValue());
+        assertEquals(ValueType.NULL, read.getValue("null").getValueType());
+        assertEquals(root.getValue("escapes").stringValue(), read.getValue("escapes").stringValue());
+        assertEquals(root.getValue("long string").stringValue(), read.getValue("long string").stringValue());
+        assertEquals(0, read.getList("list").getObject(2).keys().size());
+    }
+
+    @Test
+    public void truncatedInputFails() throws IOException {
+        String json = compact(sample());
+        for (int ii = 0; ii < json.length(); ii += ii < 200 ? 1 : 97) {
+            try {
+                JsonBackend.DeserializeObject(json.substring(0, ii));
+                fail("Read truncated JSON of length " + ii);
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("end of input")
+                        || e.getMessage().contains("Unterminated string"));
+            }
+        }
+    }
+
+    @Test
+    public void badEscapesFail() {
+        assertFails("{\"a\": \"\\x\"}", "Bad escape");
+        assertFails("{\"a\": \"\\u12G4\"}", "Bad unicode escape");
+        assertFails("{\"a\": \"\\u12\"}", "Bad unicode escape");
+        assertFails("{\"a\": \"\\", "end of input");
+        assertFails("{\"a\": \"\\u12", "end of input");
+        assertFails("{\"a\": \"tab\there\"}", "Control character");
+        assertFails("{\"a\": 1} x", "after the document");
+    }
+
+    @Test
+    public void surrogatePairsAreKept() {
+        IObjectNode escaped = JsonBackend.DeserializeObject("{\"a\": \"\\ud83d\\ude00\", \"\\uD83D\\uDE00\": 1}");
+        assertEquals("😀", escaped.getValue("a").stringValue());
+        assertEquals(2, escaped.getValue("a").stringValue().length());
+        assertTrue(escaped.keys().contains("😀"));
+
+        IObjectNode raw = JsonBackend.DeserializeObject("{\"a\": \"😀x\"}");
+        assertEquals("😀x", raw.getValue("a").stringValue());
+        assertEquals(raw.getValue("a").stringValue(),
+                JsonBackend.DeserializeObject(JsonBackend.Serialize(raw)).getValue("a").stringValue());
+    }
+
+    @Test
+    public void numbersWidenAsNeeded() {
+        IObjectNode root = JsonBackend.DeserializeObject("{\"int\": -2147483648, \"long\": 2147483648,"
+                + " \"max\": 9223372036854775807, \"min\": -9223372036854775808,"
+                + " \"over\": 9223372036854775808, \"under\": -9223372036854775809,"
+                + " \"huge\": 123456789012345678901234567890, \"zero\": 0}");
+        assertEquals(ValueType.INT, root.getValue("int").getValueType());
+        assertEquals(ValueType.LONG, root.getValue("long").getValueType());
+        assertEquals(Long.MAX_VALUE, root.getValue("max").longValue());
+        assertEquals(ValueType.LONG, root.getValue("min").getValueType());
+        assertEquals(Long.MIN_VALUE, root.getValue("min").longValue());
+
+        assertEquals(ValueType.BIG_INTEGER, root.getValue("over").getValueType());
+        assertEquals(new BigInteger("9223372036854775808"), root.getValue("over").bigIntegerValue());
+        assertEquals(ValueType.BIG_INTEGER, root.getValue("under").getValueType());
+        assertEquals(new BigInteger("-9223372036854775809"), root.getValue("under").bigIntegerValue());
+        assertEquals(new BigInteger("123456789012345678901234567890"), root.getValue("huge").bigIntegerValue());
+        assertEquals(0, root.getValue("zero").intValue());
+    }
+
+    @Test
+    public void badNumbersFail() {
+        assertFails("{\"a\": -}", "Unexpected '}'");
+        assertFails("{\"a\": 1.}", "Unexpected '}'");
+        assertFails("{\"a\": 1e}", "Unexpected '}'");
+        assertFails("{\"a\": 01}", "Unexpected '1'");
+    }
+}
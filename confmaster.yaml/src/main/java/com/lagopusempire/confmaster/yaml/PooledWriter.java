@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.yaml;
+
+import java.io.Writer;
+
+/**
+ * A Writer over a StringBuilder that can be cleared and written to again,
+ * so one thread can reuse the same buffer across calls.
+ *
+ * @author Foomf
+ */
+final class PooledWriter extends Writer {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private StringBuilder buffer = new StringBuilder(INITIAL_CAPACITY);
+
+    void reset() {
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            buffer = new StringBuilder(INITIAL_CAPACITY);
+        } else {
+            buffer.setLength(0);
+        }
+    }
+
+    @Override
+    public void write(int c) {
+        buffer.append((char)c);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+        buffer.append(chars, offset, length);
+    }
+
+    @Override
+    public void write(String string, int offset, int length) {
+        buffer.append(string, offset, offset + length);
+    }
+
+    @Override
+    public Writer append(CharSequence chars) {
+        buffer.append(chars);
+        return this;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String toString() {
+        return buffer.toString();
+    }
+}
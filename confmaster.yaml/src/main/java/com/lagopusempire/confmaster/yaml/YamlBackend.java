@@ -20,9 +20,12 @@
 package com.lagopusempire.confmaster.yaml;
 
 import com.lagopusempire.confmaster.core.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
 import java.util.*;
-import org.yaml.snakeyaml.DumperOptions;
-import org.yaml.snakeyaml.Yaml;
 
 /**
  *
@@ -33,10 +36,15 @@ public class YamlBackend {
         switch (root.getType()) {
             case VALUE:
                 IValueNode valueNode = (IValueNode)root;
-                if (valueNode.getNumber() == null) {
-                    return valueNode.stringValue();
-                } else {
-                    return valueNode.getNumber();
+                switch (valueNode.getValueType()) {
+                    case NULL:
+                        return null;
+                    case BOOLEAN:
+                        return valueNode.booleanValue();
+                    case STRING:
+                        return valueNode.stringValue();
+                    default:
+                        return valueNode.getNumber();
                 }
             case OBJECT:
                 IObjectNode objectNode = (IObjectNode)root;
@@ -58,57 +66,54 @@ public class YamlBackend {
     }
 
     public static String Serialize(INode root) {
-        Object data = SerializeNode(root);
-        DumperOptions options = new DumperOptions();
-        options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
-        Yaml yaml = new Yaml(options);
-        return yaml.dump(data);
+        return YamlCodec.DEFAULT.Serialize(root);
+    }
+
+    public static void Serialize(INode root, Writer writer) throws IOException {
+        YamlCodec.DEFAULT.Serialize(root, writer);
     }
 
     public static IObjectNode DeserializeObject(String yaml) {
-        Object rootObject = Parse(yaml);
-        INode root = Deserialize(rootObject);
-        if (root.getType() != NodeType.OBJECT) {
-            throw new UnsupportedOperationException("Didn't read an object");
-        }
-        return (IObjectNode)root;
+        return YamlCodec.DEFAULT.DeserializeObject(yaml);
     }
 
-    private static INode Deserialize(Object object) {
-        if (object instanceof AbstractMap) {
-            @SuppressWarnings("unchecked")
-            AbstractMap<String, Object> map = (AbstractMap<String, Object>)object;
+    public static IObjectNode DeserializeObject(String yaml, INodeFactory factory) {
+        return YamlCodec.DEFAULT.withFactory(factory).DeserializeObject(yaml);
+    }
 
-            ObjectNode node = new ObjectNode();
-            for (Map.Entry<String, Object> entry : map.entrySet()) {
-                INode child = Deserialize(entry.getValue());
-                node.set(entry.getKey(), child);
-            }
+    public static IObjectNode Load(Path file) throws IOException {
+        return YamlCodec.DEFAULT.Load(file);
+    }
 
-            return node;
-        } else if (object instanceof AbstractList) {
-            @SuppressWarnings("unchecked")
-            AbstractList<Object> list = (AbstractList<Object>)object;
+    public static IObjectNode Load(Path file, INodeFactory factory) throws IOException {
+        return YamlCodec.DEFAULT.withFactory(factory).Load(file);
+    }
 
-            ListNode node = new ListNode();
-            for (Object o : list) {
-                INode child = Deserialize(o);
-                node.add(child);
-            }
-            return node;
-        } else if (object instanceof String) {
-            String str = (String)object;
-            return new ValueNode(str);
-        } else if (object instanceof Number) {
-            Number num = (Number)object;
-            return new ValueNode(num.longValue());
-        } else {
-            throw new UnsupportedOperationException("I dunno what I found");
-        }
+    public static IObjectNode Load(InputStream input) throws IOException {
+        return YamlCodec.DEFAULT.Load(input);
+    }
+
+    public static IObjectNode Load(InputStream input, INodeFactory factory) throws IOException {
+        return YamlCodec.DEFAULT.withFactory(factory).Load(input);
+    }
+
+    public static IObjectNode Load(ReadableByteChannel channel) throws IOException {
+        return YamlCodec.DEFAULT.Load(channel);
+    }
+
+    public static IObjectNode Load(ReadableByteChannel channel, INodeFactory factory) throws IOException {
+        return YamlCodec.DEFAULT.withFactory(factory).Load(channel);
+    }
+
+    public static YamlDocuments LoadAll(Path file) throws IOException {
+        return YamlCodec.DEFAULT.LoadAll(file);
+    }
+
+    public static YamlDocuments LoadAll(InputStream input) {
+        return YamlCodec.DEFAULT.LoadAll(input);
     }
 
-    private static Object Parse(String yamlString) {
-        Yaml yaml = new Yaml();
-        return yaml.load(yamlString);
+    public static void Write(INode root, Path file) throws IOException {
+        YamlCodec.DEFAULT.Write(root, file);
     }
 }
@@ -0,0 +1,266 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.yaml;
+
+import com.lagopusempire.confmaster.core.*;
+import com.lagopusempire.confmaster.core.backend.AtomicFiles;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.reader.UnicodeReader;
+
+/**
+ * Holds the YAML format options and node factory, set up once and shared
+ * between threads. It is immutable: the with methods return a new codec.
+ * Each thread keeps its own output buffer, so serializing to a String does
+ * not allocate a fresh one every call.
+ *
+ * @author Foomf
+ */
+public final class YamlCodec {
+    public static final YamlCodec DEFAULT = new YamlCodec(DumperOptions.FlowStyle.BLOCK,
+            2, 80, NodeFactory.DEFAULT, false, false, false);
+
+    static final long MAP_THRESHOLD = 1024 * 1024;
+
+    private final DumperOptions options;
+    private final INodeFactory factory;
+    private final boolean lazy;
+    private final boolean parallel;
+    private final boolean parallelWrite;
+    private final ThreadLocal<PooledWriter> writers = ThreadLocal.withInitial(PooledWriter::new);
+
+    private YamlCodec(DumperOptions.FlowStyle flowStyle, int indent, int width,
+            INodeFactory factory, boolean lazy, boolean parallel, boolean parallelWrite) {
+        this.options = new DumperOptions();
+        this.options.setDefaultFlowStyle(flowStyle);
+        this.options.setIndent(indent);
+        this.options.setWidth(width);
+        this.factory = factory;
+        this.lazy = lazy;
+        this.parallel = parallel;
+        this.parallelWrite = parallelWrite;
+    }
+
+    public DumperOptions.FlowStyle getFlowStyle() {
+        return options.getDefaultFlowStyle();
+    }
+
+    public int getIndent() {
+        return options.getIndent();
+    }
+
+    public int getWidth() {
+        return options.getWidth();
+    }
+
+    public INodeFactory getFactory() {
+        return factory;
+    }
+
+    public boolean isLazyLoading() {
+        return lazy;
+    }
+
+    public boolean isParallelLoading() {
+        return parallel;
+    }
+
+    public boolean isParallelWriting() {
+        return parallelWrite;
+    }
+
+    public YamlCodec withFlowStyle(DumperOptions.FlowStyle flowStyle) {
+        return new YamlCodec(flowStyle, getIndent(), getWidth(), factory, lazy, parallel, parallelWrite);
+    }
+
+    public YamlCodec withIndent(int indent) {
+        return new YamlCodec(getFlowStyle(), indent, getWidth(), factory, lazy, parallel, parallelWrite);
+    }
+
+    public YamlCodec withWidth(int width) {
+        return new YamlCodec(getFlowStyle(), getIndent(), width, factory, lazy, parallel, parallelWrite);
+    }
+
+    public YamlCodec withFactory(INodeFactory factory) {
+        return new YamlCodec(getFlowStyle(), getIndent(), getWidth(), factory, lazy, parallel, parallelWrite);
+    }
+
+    /**
+     * With lazy loading on, nested mappings and sequences are only parsed
+     * when they are first touched. The whole source is kept in memory until
+     * every part of it has been loaded. Documents using anchors, aliases or
+     * tags are still loaded eagerly.
+     */
+    public YamlCodec withLazyLoading(boolean lazy) {
+        return new YamlCodec(getFlowStyle(), getIndent(), getWidth(), factory, lazy, parallel, parallelWrite);
+    }
+
+    /**
+     * With parallel loading on, a document is read sequentially but its
+     * nodes are built on the common fork/join pool. Lazy loading takes
+     * precedence when both are on.
+     *
+     * The factory is then called from several pool threads at once, so it
+     * must be thread safe. The nodes it returns are only handed between
+     * threads through the pool's joins, so they need no locking of their own.
+     */
+    public YamlCodec withParallelLoading(boolean parallel) {
+        return new YamlCodec(getFlowStyle(), getIndent(), getWidth(), factory, lazy, parallel, parallelWrite);
+    }
+
+    /**
+     * With parallel writing on, large block style documents are rendered in
+     * pieces on the common fork/join pool. The output is the same either
+     * way.
+     */
+    public YamlCodec withParallelWriting(boolean parallelWrite) {
+        return new YamlCodec(getFlowStyle(), getIndent(), getWidth(), factory, lazy, parallel, parallelWrite);
+    }
+
+    public String Serialize(INode root) {
+        PooledWriter writer = writers.get();
+        writer.reset();
+        try {
+            Serialize(root, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    public void Serialize(INode root, Writer writer) throws IOException {
+        if (parallelWrite) {
+            new YamlParallelWriter(writer, options, ForkJoinPool.commonPool()).write(root);
+            return;
+        }
+
+        YamlEmitter emitter = new YamlEmitter(writer, options);
+        emitter.emitStreamStart();
+        emitter.emitDocument(root);
+        emitter.emitStreamEnd();
+    }
+
+    public IObjectNode DeserializeObject(String yaml) {
+        if (lazy) {
+            return toObject(YamlLazyLoader.loadSingle(yaml, factory));
+        }
+        return toObject(loadSingle(new StringReader(yaml)));
+    }
+
+    public IObjectNode Load(Path file) throws IOException {
+        try (InputStream input = open(file)) {
+            return Load(input);
+        }
+    }
+
+    public IObjectNode Load(InputStream input) throws IOException {
+        return Load(new UnicodeReader(input));
+    }
+
+    public IObjectNode Load(ReadableByteChannel channel) throws IOException {
+        return Load(Channels.newInputStream(channel));
+    }
+
+    private IObjectNode Load(Reader reader) throws IOException {
+        try {
+            if (lazy) {
+                return DeserializeObject(readFully(reader));
+            }
+            return toObject(loadSingle(reader));
+        } catch (YAMLException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a multi-document stream one document at a time. The file is
+     * closed when the returned iterator is closed.
+     */
+    public YamlDocuments LoadAll(Path file) throws IOException {
+        return LoadAll(open(file));
+    }
+
+    /**
+     * Reads a multi-document stream one document at a time. Closing the
+     * returned iterator closes the input.
+     */
+    public YamlDocuments LoadAll(InputStream input) {
+        return new YamlDocuments(new YamlEventLoader(new UnicodeReader(input), factory), input);
+    }
+
+    public void Write(INode root, Path file) throws IOException {
+        AtomicFiles.writeText(file, writer -> Serialize(root, writer));
+    }
+
+    DumperOptions options() {
+        return options;
+    }
+
+    private INode loadSingle(Reader reader) {
+        if (parallel) {
+            return new YamlParallelLoader(reader, factory, ForkJoinPool.commonPool()).loadSingle();
+        }
+        return new YamlEventLoader(reader, factory).loadSingle();
+    }
+
+    private static InputStream open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return channel.size() >= MAP_THRESHOLD
+                    ? new MappedInputStream(channel)
+                    : Channels.newInputStream(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static String readFully(Reader reader) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        char[] buffer = new char[8192];
+        int count;
+        while ((count = reader.read(buffer)) != -1) {
+            builder.append(buffer, 0, count);
+        }
+        return builder.toString();
+    }
+
+    static IObjectNode toObject(INode root) {
+        if (root == null || root.getType() != NodeType.OBJECT) {
+            throw new UnsupportedOperationException("Didn't read an object");
+        }
+        return (IObjectNode)root;
+    }
+}
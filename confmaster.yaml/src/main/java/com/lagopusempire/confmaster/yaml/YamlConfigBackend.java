@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.yaml;
+
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.INodeFactory;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.backend.IConfigBackend;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ *
+ * @author Foomf
+ */
+public final class YamlConfigBackend implements IConfigBackend {
+    private static final Set<String> EXTENSIONS = Set.of("yml", "yaml");
+
+    private final YamlCodec codec;
+
+    public YamlConfigBackend() {
+        this(YamlCodec.DEFAULT);
+    }
+
+    public YamlConfigBackend(YamlCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public String getName() {
+        return "yaml";
+    }
+
+    @Override
+    public Set<String> getExtensions() {
+        return EXTENSIONS;
+    }
+
+    // Almost any text is valid YAML, so plain text only gets a low score
+    // and narrower text formats win over it.
+    @Override
+    public int detect(byte[] head, int length) {
+        String start = new String(head, 0, length, StandardCharsets.UTF_8);
+        if (start.startsWith("%YAML") || start.startsWith("---")) {
+            return 60;
+        }
+        for (int ii = 0; ii < length; ++ii) {
+            if (head[ii] == 0) {
+                return 0;
+            }
+        }
+        return 10;
+    }
+
+    @Override
+    public IObjectNode read(InputStream input, INodeFactory factory) throws IOException {
+        return codec.withFactory(factory).Load(input);
+    }
+
+    @Override
+    public IObjectNode load(Path file, INodeFactory factory) throws IOException {
+        return codec.withFactory(factory).Load(file);
+    }
+
+    @Override
+    public void write(INode root, OutputStream output) throws IOException {
+        Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+        codec.Serialize(root, writer);
+        writer.flush();
+    }
+}
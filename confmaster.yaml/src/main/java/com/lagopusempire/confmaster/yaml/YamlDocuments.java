@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.yaml;
+
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.yaml.snakeyaml.error.YAMLException;
+
+/**
+ * Iterates over the documents of a multi-document YAML stream. Each
+ * document is parsed only when it is asked for, so memory use does not grow
+ * with the length of the stream.
+ *
+ * @author Foomf
+ */
+public final class YamlDocuments implements Iterator<IObjectNode>, Closeable {
+    private final YamlEventLoader loader;
+    private final Closeable input;
+    private INode next;
+    private boolean done;
+
+    YamlDocuments(YamlEventLoader loader, Closeable input) {
+        this.loader = loader;
+        this.input = input;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            try {
+                next = loader.loadNext();
+            } catch (YAMLException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw new UncheckedIOException((IOException)e.getCause());
+                }
+                throw e;
+            }
+            done = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public IObjectNode next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        INode document = next;
+        next = null;
+        return YamlCodec.toObject(document);
+    }
+
+    /**
+     * Returns the remaining documents as a sequential stream. Closing the
+     * stream closes this iterator.
+     */
+    public Stream<IObjectNode> stream() {
+        Spliterator<IObjectNode> spliterator = Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        done = true;
+        next = null;
+        input.close();
+    }
+}
@@ -0,0 +1,254 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.yaml;
+
+import com.lagopusempire.confmaster.core.IListNode;
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.IValueNode;
+import com.lagopusempire.confmaster.core.NodeType;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.emitter.Emitter;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.DocumentEndEvent;
+import org.yaml.snakeyaml.events.DocumentStartEvent;
+import org.yaml.snakeyaml.events.ImplicitTuple;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+import org.yaml.snakeyaml.events.StreamEndEvent;
+import org.yaml.snakeyaml.events.StreamStartEvent;
+import org.yaml.snakeyaml.external.biz.base64Coder.Base64Coder;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.reader.StreamReader;
+
+/**
+ * Walks a node tree and feeds it to SnakeYAML's emitter as events, so the
+ * text goes straight to the writer without building a copy of the tree or
+ * of the output first. Scalars are styled and tagged the same way
+ * yaml.dump() would, so the output matches it byte for byte.
+ *
+ * @author Foomf
+ */
+final class YamlEmitter {
+    // Same pattern SnakeYAML's representer uses to pick the literal style.
+    private static final Pattern MULTILINE = Pattern.compile("\n|\u0085|\u2028|\u2029");
+
+    private final Emitter emitter;
+    private final DumperOptions options;
+    private final Character defaultStyle;
+
+    YamlEmitter(Writer writer, DumperOptions options) {
+        this.emitter = new Emitter(writer, options);
+        this.options = options;
+        this.defaultStyle = options.getDefaultScalarStyle().getChar();
+    }
+
+    void emitStreamStart() throws IOException {
+        emitter.emit(new StreamStartEvent(null, null));
+    }
+
+    void emitStreamEnd() throws IOException {
+        emitter.emit(new StreamEndEvent(null, null));
+    }
+
+    void emitDocument(INode root) throws IOException {
+        emitter.emit(new DocumentStartEvent(null, null, options.isExplicitStart(),
+                options.getVersion(), options.getTags()));
+        emitNode(root);
+        emitter.emit(new DocumentEndEvent(null, null, options.isExplicitEnd()));
+    }
+
+    void emitNode(INode node) throws IOException {
+        switch (node.getType()) {
+            case VALUE:
+                emitValue((IValueNode)node);
+                break;
+            case OBJECT:
+                emitObject((IObjectNode)node);
+                break;
+            case LIST:
+                emitList((IListNode)node);
+                break;
+            default:
+                throw new UnsupportedOperationException("unknown type");
+        }
+    }
+
+    private void emitObject(IObjectNode object) throws IOException {
+        String[] keys = sortedKeys(object);
+        emitter.emit(new MappingStartEvent(null, Tag.MAP.getValue(), true, null, null,
+                flowStyle(object, keys)));
+        for (String key : keys) {
+            emitString(key);
+            emitNode(object.get(key));
+        }
+        emitter.emit(new MappingEndEvent(null, null));
+    }
+
+    private void emitList(IListNode list) throws IOException {
+        emitter.emit(new SequenceStartEvent(null, Tag.SEQ.getValue(), true, null, null,
+                flowStyle(list)));
+        for (int ii = 0; ii < list.length(); ++ii) {
+            emitNode(list.get(ii));
+        }
+        emitter.emit(new SequenceEndEvent(null, null));
+    }
+
+    static String[] sortedKeys(IObjectNode object) {
+        Set<String> keySet = object.keys();
+        String[] keys = keySet.toArray(new String[keySet.size()]);
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    // With AUTO, yaml.dump() only uses flow style for collections made up
+    // entirely of plain scalars.
+    private Boolean flowStyle(IObjectNode object, String[] keys) {
+        if (options.getDefaultFlowStyle() != DumperOptions.FlowStyle.AUTO) {
+            return options.getDefaultFlowStyle().getStyleBoolean();
+        }
+
+        for (String key : keys) {
+            if (!isPlain(key) || !isPlain(object.get(key))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Boolean flowStyle(IListNode list) {
+        if (options.getDefaultFlowStyle() != DumperOptions.FlowStyle.AUTO) {
+            return options.getDefaultFlowStyle().getStyleBoolean();
+        }
+
+        for (int ii = 0; ii < list.length(); ++ii) {
+            if (!isPlain(list.get(ii))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isPlain(INode node) {
+        if (node.getType() != NodeType.VALUE) {
+            return false;
+        }
+
+        IValueNode value = (IValueNode)node;
+        switch (value.getValueType()) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+            case BIG_INTEGER:
+            case BOOLEAN:
+            case NULL:
+                return defaultStyle == null;
+            case STRING:
+                return isPlain(value.stringValue());
+            default:
+                throw new UnsupportedOperationException("unknown type");
+        }
+    }
+
+    private boolean isPlain(String string) {
+        return defaultStyle == null
+                && !StreamReader.NON_PRINTABLE.matcher(string).find()
+                && !MULTILINE.matcher(string).find();
+    }
+
+    private void emitValue(IValueNode value) throws IOException {
+        switch (value.getValueType()) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+                emitScalar(Tag.INT, value.stringValue(), defaultStyle);
+                break;
+            case BIG_INTEGER:
+                emitScalar(Tag.INT, value.stringValue(), defaultStyle);
+                break;
+            case FLOAT:
+            case DOUBLE:
+                emitScalar(Tag.FLOAT, floatText(value), defaultStyle);
+                break;
+            case BOOLEAN:
+                emitScalar(Tag.BOOL, Boolean.toString(value.booleanValue()), defaultStyle);
+                break;
+            case NULL:
+                emitScalar(Tag.NULL, "null", defaultStyle);
+                break;
+            case STRING:
+                emitString(value.stringValue());
+                break;
+            default:
+                throw new UnsupportedOperationException("unknown type");
+        }
+    }
+
+    private static String floatText(IValueNode value) {
+        double number = value.doubleValue();
+        if (Double.isNaN(number)) {
+            return ".NaN";
+        } else if (number == Double.POSITIVE_INFINITY) {
+            return ".inf";
+        } else if (number == Double.NEGATIVE_INFINITY) {
+            return "-.inf";
+        }
+        return value.stringValue();
+    }
+
+    private void emitString(String string) throws IOException {
+        if (StreamReader.NON_PRINTABLE.matcher(string).find()) {
+            String binary;
+            try {
+                binary = String.valueOf(Base64Coder.encode(string.getBytes("UTF-8")));
+            } catch (UnsupportedEncodingException e) {
+                throw new YAMLException(e);
+            }
+            emitScalar(Tag.BINARY, binary, '|');
+            return;
+        }
+
+        Character style = defaultStyle;
+        if (style == null && MULTILINE.matcher(string).find()) {
+            style = '|';
+        }
+        emitScalar(Tag.STR, string, style);
+    }
+
+    private void emitScalar(Tag tag, String value, Character style) throws IOException {
+        ImplicitTuple implicit = new ImplicitTuple(
+                tag.equals(YamlScalars.resolve(value, true)),
+                tag.equals(YamlScalars.resolve(value, false)));
+        emitter.emit(new ScalarEvent(null, tag.getValue(), implicit, value, null, null, style));
+    }
+}
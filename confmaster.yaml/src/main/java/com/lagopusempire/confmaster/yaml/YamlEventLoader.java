@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.yaml;
+
+import com.lagopusempire.confmaster.core.IListNode;
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.INodeFactory;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.NodeType;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+
+/**
+ * Builds nodes straight from SnakeYAML's parse events, so no intermediate
+ * tree of maps and lists is ever created.
+ *
+ * @author Foomf
+ */
+final class YamlEventLoader {
+    private final Parser parser;
+    private final INodeFactory factory;
+    private final Map<String, INode> anchors = new HashMap<>();
+    private boolean ended;
+
+    YamlEventLoader(Reader reader, INodeFactory factory) {
+        this.parser = new ParserImpl(new StreamReader(reader));
+        this.factory = factory;
+    }
+
+    /**
+     * Loads a stream holding at most one document. Returns null for an
+     * empty stream.
+     */
+    INode loadSingle() {
+        expect(Event.ID.StreamStart);
+        INode root = null;
+        if (!parser.checkEvent(Event.ID.StreamEnd)) {
+            root = loadDocument();
+        }
+        if (!parser.checkEvent(Event.ID.StreamEnd)) {
+            throw new UnsupportedOperationException("Expected a single document");
+        }
+        parser.getEvent();
+        return root;
+    }
+
+    /**
+     * Loads the next document of the stream. Returns null once the stream
+     * has ended. Only one document is held in memory at a time.
+     */
+    INode loadNext() {
+        if (ended) {
+            return null;
+        }
+        if (parser.checkEvent(Event.ID.StreamStart)) {
+            parser.getEvent();
+        }
+        if (parser.checkEvent(Event.ID.StreamEnd)) {
+            parser.getEvent();
+            ended = true;
+            return null;
+        }
+        return loadDocument();
+    }
+
+    private INode loadDocument() {
+        expect(Event.ID.DocumentStart);
+        INode root = loadNode();
+        expect(Event.ID.DocumentEnd);
+        anchors.clear();
+        return root;
+    }
+
+    private void expect(Event.ID id) {
+        Event event = parser.getEvent();
+        if (!event.is(id)) {
+            throw new UnsupportedOperationException("Expected " + id + " but found " + event);
+        }
+    }
+
+    private INode loadNode() {
+        Event event = parser.getEvent();
+        if (event.is(Event.ID.Alias)) {
+            String anchor = ((AliasEvent)event).getAnchor();
+            INode node = anchors.get(anchor);
+            if (node == null) {
+                throw new UnsupportedOperationException("Unknown anchor " + anchor);
+            }
+            return node.deepClone();
+        }
+
+        INode node;
+        if (event.is(Event.ID.Scalar)) {
+            ScalarEvent scalar = (ScalarEvent)event;
+            Tag tag = YamlScalars.resolve(scalar.getTag(), scalar.getValue(),
+                    scalar.getImplicit().canOmitTagInPlainScalar());
+            node = YamlScalars.construct(tag, scalar.getValue(), factory);
+        } else if (event.is(Event.ID.SequenceStart)) {
+            node = loadList();
+        } else if (event.is(Event.ID.MappingStart)) {
+            node = loadObject();
+        } else {
+            throw new UnsupportedOperationException("I dunno what I found");
+        }
+
+        String anchor = ((NodeEvent)event).getAnchor();
+        if (anchor != null) {
+            anchors.put(anchor, node);
+        }
+        return node;
+    }
+
+    private IListNode loadList() {
+        IListNode list = factory.createList(0);
+        while (!parser.checkEvent(Event.ID.SequenceEnd)) {
+            list.add(loadNode());
+        }
+        parser.getEvent();
+        return list;
+    }
+
+    private IObjectNode loadObject() {
+        IObjectNode object = factory.createObject(0);
+        List<INode> merges = null;
+        while (!parser.checkEvent(Event.ID.MappingEnd)) {
+            Event keyEvent = parser.getEvent();
+            if (!keyEvent.is(Event.ID.Scalar)) {
+                throw new UnsupportedOperationException("Only scalar keys are supported");
+            }
+
+            ScalarEvent key = (ScalarEvent)keyEvent;
+            INode value = loadNode();
+            Tag tag = YamlScalars.resolve(key.getTag(), key.getValue(),
+                    key.getImplicit().canOmitTagInPlainScalar());
+            if (Tag.MERGE.equals(tag)) {
+                if (merges == null) {
+                    merges = new ArrayList<>();
+                }
+                merges.add(value);
+            } else {
+                object.set(factory.createKey(key.getValue()), value);
+            }
+        }
+        parser.getEvent();
+
+        if (merges != null) {
+            for (INode merge : merges) {
+                merge(object, merge);
+            }
+        }
+        return object;
+    }
+
+    // Keys written out in the mapping win over merged ones, and earlier
+    // merged mappings win over later ones.
+    static void merge(IObjectNode object, INode merge) {
+        if (merge.getType() == NodeType.LIST) {
+            IListNode list = (IListNode)merge;
+            for (int ii = 0; ii < list.length(); ++ii) {
+                merge(object, list.get(ii));
+            }
+        } else if (merge.getType() == NodeType.OBJECT) {
+            IObjectNode source = (IObjectNode)merge;
+            for (String key : source.keys()) {
+                if (object.get(key) == null) {
+                    object.set(key, source.get(key).deepClone());
+                }
+            }
+        } else {
+            throw new UnsupportedOperationException("Can only merge mappings");
+        }
+    }
+}
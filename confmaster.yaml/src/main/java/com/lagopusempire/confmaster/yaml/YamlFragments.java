@@ -0,0 +1,194 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.yaml;
+
+import com.lagopusempire.confmaster.core.IListNode;
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.ListNode;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.yaml.snakeyaml.DumperOptions;
+
+/**
+ * Renders pieces of a block style document on their own.
+ *
+ * In block style each entry of a mapping starts on its own line, and how it
+ * is written depends only on the keys above it. So entries are rendered as a
+ * document that nests just those entries under the same keys, and the lines
+ * holding those keys are cut off again. Pieces rendered this way can be
+ * joined back together in key order to give exactly what YamlEmitter writes
+ * for the whole tree.
+ *
+ * @author Foomf
+ */
+final class YamlFragments {
+    private YamlFragments() {
+    }
+
+    /**
+     * Renders the given entries as they would appear nested under path.
+     */
+    static String renderEntries(DumperOptions options, List<String> path, Map<String, INode> entries) {
+        return render(options, wrap(path, new Entries(entries)), path.size());
+    }
+
+    /**
+     * Renders items from to to of a list as they would appear under the
+     * last key of path.
+     */
+    static String renderItems(DumperOptions options, List<String> path, IListNode list, int from, int to) {
+        IObjectNode items = new Entries(Collections.singletonMap(
+                path.get(path.size() - 1), new Items(list, from, to)));
+        return render(options, wrap(path.subList(0, path.size() - 1), items), path.size());
+    }
+
+    /**
+     * Returns the "key:" line that opens a nested collection under path, or
+     * null if the emitter writes the key in the "? key" form, in which case
+     * nothing can be split under it. Which keys those are depends on how the
+     * emitter analyses the scalar, so it is asked, rather than guessed.
+     */
+    static String keyLine(DumperOptions options, List<String> path, String key) {
+        IListNode placeholder = new ListNode().add(new ListNode());
+        String text = renderEntries(options, path, Collections.singletonMap(key, placeholder));
+        String line = text.substring(0, text.indexOf('\n') + 1);
+        return line.trim().startsWith("?") ? null : line;
+    }
+
+    private static INode wrap(List<String> path, IObjectNode innermost) {
+        INode node = innermost;
+        for (int ii = path.size() - 1; ii >= 0; --ii) {
+            node = new Entries(Collections.singletonMap(path.get(ii), node));
+        }
+        return node;
+    }
+
+    private static String render(DumperOptions options, INode document, int skipLines) {
+        StringWriter text = new StringWriter();
+        try {
+            YamlEmitter emitter = new YamlEmitter(text, options);
+            emitter.emitStreamStart();
+            emitter.emitDocument(document);
+            emitter.emitStreamEnd();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        String rendered = text.toString();
+        int start = 0;
+        for (int ii = 0; ii < skipLines; ++ii) {
+            start = rendered.indexOf('\n', start) + 1;
+        }
+        return rendered.substring(start);
+    }
+
+    // Read-only stand-ins used to build the nesting documents without
+    // touching the tree being written.
+    static final class Entries implements IObjectNode {
+        private final Map<String, INode> entries;
+
+        Entries(Map<String, INode> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public Set<String> keys() {
+            return entries.keySet();
+        }
+
+        @Override
+        public INode get(String key) {
+            return entries.get(key);
+        }
+
+        @Override
+        public IObjectNode unset(String key) {
+            throw new UnsupportedOperationException("Not supported.");
+        }
+
+        @Override
+        public IObjectNode set(String key, INode value) {
+            throw new UnsupportedOperationException("Not supported.");
+        }
+
+        @Override
+        public INode deepClone() {
+            throw new UnsupportedOperationException("Not supported.");
+        }
+
+        @Override
+        public IObjectNode freeze() {
+            throw new UnsupportedOperationException("Not supported.");
+        }
+
+        @Override
+        public boolean isFrozen() {
+            return true;
+        }
+    }
+
+    static final class Items implements IListNode {
+        private final IListNode list;
+        private final int from;
+        private final int to;
+
+        Items(IListNode list, int from, int to) {
+            this.list = list;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int length() {
+            return to - from;
+        }
+
+        @Override
+        public INode get(int index) {
+            return list.get(from + index);
+        }
+
+        @Override
+        public IListNode add(INode value) {
+            throw new UnsupportedOperationException("Not supported.");
+        }
+
+        @Override
+        public INode deepClone() {
+            throw new UnsupportedOperationException("Not supported.");
+        }
+
+        @Override
+        public IListNode freeze() {
+            throw new UnsupportedOperationException("Not supported.");
+        }
+
+        @Override
+        public boolean isFrozen() {
+            return true;
+        }
+    }
+}
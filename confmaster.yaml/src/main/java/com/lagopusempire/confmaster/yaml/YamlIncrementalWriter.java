@@ -0,0 +1,352 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.yaml;
+
+import com.lagopusempire.confmaster.core.IListNode;
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.IValueNode;
+import com.lagopusempire.confmaster.core.NodeType;
+import com.lagopusempire.confmaster.core.backend.AtomicFiles;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.yaml.snakeyaml.DumperOptions;
+
+/**
+ * Serializes the same tree over and over, re-rendering only what changed
+ * since the last time.
+ *
+ * The text of every block mapping is cached along with the mapping's
+ * version. A mapping whose version has not moved is written straight from
+ * the cache. One that has changed is rebuilt, but nested mappings are
+ * cached on their own, and its other entries are cached in short runs that
+ * are only rendered again when one of their nodes changed. Values don't keep
+ * a version, so a run is checked against a copy of what it was rendered
+ * from; that is a plain comparison, much cheaper than rendering again. So saving after
+ * a small edit costs about as much as the edit, not the whole tree.
+ *
+ * Nodes that do not keep a version are rendered every time. The cache holds
+ * its nodes weakly. A writer can be shared, but saves through it run one at
+ * a time.
+ *
+ * @author Foomf
+ */
+public final class YamlIncrementalWriter {
+    // A run ends at a key whose hash has these bits clear, so inserting or
+    // removing a key only disturbs the run it falls in.
+    private static final int RUN_BOUNDARY = 31;
+    private static final int MAX_RUN = 128;
+
+    private final YamlCodec codec;
+    private final DumperOptions options;
+    private final Map<INode, Fragment> fragments = new WeakHashMap<>();
+
+    public YamlIncrementalWriter(YamlCodec codec) {
+        this.codec = codec;
+        this.options = codec.options();
+    }
+
+    public YamlCodec getCodec() {
+        return codec;
+    }
+
+    public synchronized String Serialize(INode root) {
+        StringWriter writer = new StringWriter();
+        try {
+            Serialize(root, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    public synchronized void Serialize(INode root, Writer writer) throws IOException {
+        if (root.getType() != NodeType.OBJECT
+                || options.getDefaultFlowStyle() != DumperOptions.FlowStyle.BLOCK
+                || ((IObjectNode)root).keys().isEmpty()) {
+            codec.Serialize(root, writer);
+            return;
+        }
+        write((IObjectNode)root, new ArrayList<>(), writer);
+    }
+
+    public void Write(INode root, Path file) throws IOException {
+        AtomicFiles.writeText(file, writer -> Serialize(root, writer));
+    }
+
+    /**
+     * Drops every cached fragment.
+     */
+    public synchronized void clear() {
+        fragments.clear();
+    }
+
+    private void write(IObjectNode object, List<String> path, Writer writer) throws IOException {
+        for (Object piece : fragment(object, path).pieces) {
+            if (piece instanceof String) {
+                writer.write((String)piece);
+            } else {
+                Child child = (Child)piece;
+                writer.write(child.keyLine);
+                path.add(child.key);
+                write(child.node, path, writer);
+                path.remove(path.size() - 1);
+            }
+        }
+    }
+
+    private Fragment fragment(IObjectNode object, List<String> path) {
+        long version = object.getVersion();
+        Fragment previous = fragments.get(object);
+        if (previous != null && previous.depth != path.size()) {
+            previous = null;
+        }
+        if (previous != null && version >= 0 && previous.version == version
+                && previous.holds(object)) {
+            return previous;
+        }
+
+        String[] keys = YamlEmitter.sortedKeys(object);
+        Fragment fragment = new Fragment(version, path.size(), keys.length);
+        List<String> run = new ArrayList<>();
+        for (String key : keys) {
+            INode value = object.get(key);
+            if (value.getType() == NodeType.OBJECT && !((IObjectNode)value).keys().isEmpty()) {
+                Child child = previous == null ? null : previous.children.get(key);
+                String keyLine = child != null
+                        ? child.keyLine
+                        : YamlFragments.keyLine(options, path, key);
+                if (keyLine != null) {
+                    flush(object, path, run, previous, fragment);
+                    child = new Child(key, (IObjectNode)value, keyLine);
+                    fragment.pieces.add(child);
+                    fragment.children.put(key, child);
+                    continue;
+                }
+            }
+
+            if (!run.isEmpty() && (run.size() >= MAX_RUN || (key.hashCode() & RUN_BOUNDARY) == 0)) {
+                flush(object, path, run, previous, fragment);
+            }
+            run.add(key);
+        }
+        flush(object, path, run, previous, fragment);
+
+        if (version >= 0) {
+            fragments.put(object, fragment);
+        }
+        return fragment;
+    }
+
+    private void flush(IObjectNode object, List<String> path, List<String> keys,
+            Fragment previous, Fragment fragment) {
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        String first = keys.get(0);
+        Run run = previous == null ? null : previous.runs.get(first);
+        if (run == null || !run.matches(object, keys)) {
+            Map<String, INode> entries = new LinkedHashMap<>();
+            for (String key : keys) {
+                entries.put(key, object.get(key));
+            }
+            run = new Run(entries, YamlFragments.renderEntries(options, path, entries));
+        }
+
+        fragment.pieces.add(run.text);
+        fragment.runs.put(first, run);
+        keys.clear();
+    }
+
+    private static final class Fragment {
+        final long version;
+        final int depth;
+        final int size;
+        final List<Object> pieces = new ArrayList<>();
+        final Map<String, Run> runs = new HashMap<>();
+        final Map<String, Child> children = new HashMap<>();
+
+        Fragment(long version, int depth, int size) {
+            this.version = version;
+            this.depth = depth;
+            this.size = size;
+        }
+
+        // A matching version should mean nothing changed, but the fragment
+        // is only trusted if every node it was rendered from is still in
+        // place at the version it had then.
+        boolean holds(IObjectNode object) {
+            if (object.keys().size() != size) {
+                return false;
+            }
+            for (Child child : children.values()) {
+                if (!child.holds(object)) {
+                    return false;
+                }
+            }
+            for (Run run : runs.values()) {
+                if (!run.holds(object)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Child {
+        final String key;
+        final IObjectNode node;
+        final long version;
+        final String keyLine;
+
+        Child(String key, IObjectNode node, String keyLine) {
+            this.key = key;
+            this.node = node;
+            this.version = node.getVersion();
+            this.keyLine = keyLine;
+        }
+
+        boolean holds(IObjectNode object) {
+            return object.get(key) == node && version >= 0 && node.getVersion() == version;
+        }
+    }
+
+    // A run of entries rendered together, with the node each key held at
+    // the time. Values can change in place without bumping any version, so
+    // every node that isn't frozen is compared against a copy taken when
+    // the run was rendered.
+    private static final class Run {
+        final String[] keys;
+        final INode[] values;
+        final INode[] states;
+        final String text;
+
+        Run(Map<String, INode> entries, String text) {
+            this.keys = entries.keySet().toArray(new String[entries.size()]);
+            this.values = entries.values().toArray(new INode[entries.size()]);
+            this.states = new INode[values.length];
+            for (int ii = 0; ii < values.length; ++ii) {
+                if (!values[ii].isFrozen()) {
+                    states[ii] = values[ii].deepClone();
+                }
+            }
+            this.text = text;
+        }
+
+        boolean matches(IObjectNode object, List<String> current) {
+            if (current.size() != keys.length) {
+                return false;
+            }
+            for (int ii = 0; ii < keys.length; ++ii) {
+                if (!keys[ii].equals(current.get(ii))) {
+                    return false;
+                }
+            }
+            return holds(object);
+        }
+
+        boolean holds(IObjectNode object) {
+            for (int ii = 0; ii < keys.length; ++ii) {
+                if (object.get(keys[ii]) != values[ii]
+                        || (states[ii] != null && !sameContent(values[ii], states[ii]))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static boolean sameContent(INode node, INode state) {
+        if (node.getType() != state.getType()) {
+            return false;
+        }
+
+        switch (node.getType()) {
+            case OBJECT: {
+                IObjectNode object = (IObjectNode)node;
+                IObjectNode other = (IObjectNode)state;
+                if (!object.keys().equals(other.keys())) {
+                    return false;
+                }
+                for (String key : object.keys()) {
+                    if (!sameContent(object.get(key), other.get(key))) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            case LIST: {
+                IListNode list = (IListNode)node;
+                IListNode other = (IListNode)state;
+                if (list.length() != other.length()) {
+                    return false;
+                }
+                for (int ii = 0; ii < list.length(); ++ii) {
+                    if (!sameContent(list.get(ii), other.get(ii))) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            case VALUE:
+                return sameValue((IValueNode)node, (IValueNode)state);
+            default:
+                throw new UnsupportedOperationException("unknown type");
+        }
+    }
+
+    private static boolean sameValue(IValueNode value, IValueNode other) {
+        if (value.getValueType() != other.getValueType()) {
+            return false;
+        }
+
+        switch (value.getValueType()) {
+            case NULL:
+                return true;
+            case BOOLEAN:
+                return value.booleanValue() == other.booleanValue();
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+                return value.longValue() == other.longValue();
+            case FLOAT:
+            case DOUBLE:
+                return Double.doubleToLongBits(value.doubleValue())
+                        == Double.doubleToLongBits(other.doubleValue());
+            case BIG_INTEGER:
+                return value.bigIntegerValue().equals(other.bigIntegerValue());
+            case STRING:
+                return value.stringValue().equals(other.stringValue());
+            default:
+                throw new UnsupportedOperationException("unknown type");
+        }
+    }
+}
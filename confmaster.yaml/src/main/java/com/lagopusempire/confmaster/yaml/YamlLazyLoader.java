@@ -0,0 +1,592 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.yaml;
+
+import com.lagopusempire.confmaster.core.IListNode;
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.INodeFactory;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.LazyListNode;
+import com.lagopusempire.confmaster.core.LazyObjectNode;
+import java.io.StringReader;
+import java.util.Arrays;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+
+/**
+ * Loads one level of a document at a time. The lines of a level are found
+ * by their indentation alone, without parsing anything below it: a nested
+ * block mapping or sequence only has its place in the source remembered,
+ * and becomes a lazy node that loads it as a level of its own when first
+ * touched. The rest of the level, its keys and scalars and any flow
+ * collections, is then parsed in one go, so every part of the source is
+ * parsed once at most.
+ *
+ * The scanner only follows plain block structure. Quoted scalars and flow
+ * collections may run over several lines, but are expected to stay
+ * indented below their key as YAML requires. Documents with anchors,
+ * aliases, tags, merge keys, explicit keys, directives or more than one
+ * document are loaded eagerly instead, since one part of them can depend
+ * on another. A level the scanner misreads is caught when it is parsed,
+ * and is loaded eagerly as well.
+ *
+ * @author Foomf
+ */
+final class YamlLazyLoader {
+    private final String source;
+    private final INodeFactory factory;
+
+    private YamlLazyLoader(String source, INodeFactory factory) {
+        this.source = source;
+        this.factory = factory;
+    }
+
+    /**
+     * Loads a stream holding at most one document. Returns null for an
+     * empty stream.
+     */
+    static INode loadSingle(String source, INodeFactory factory) {
+        YamlLazyLoader loader = new YamlLazyLoader(source, factory);
+        int start = loader.documentStart();
+        if (start >= 0 && loader.isSafe(start)) {
+            int first = loader.nextContent(start, source.length());
+            if (first >= 0) {
+                int lineEnd = loader.lineEnd(first, source.length());
+                if (loader.isSequenceItem(first, lineEnd)) {
+                    return loader.loadLevel(start, source.length(), false);
+                }
+                if (loader.keyEnd(first, lineEnd) >= 0) {
+                    return loader.loadLevel(start, source.length(), true);
+                }
+            }
+        }
+        return new YamlEventLoader(new StringReader(source), factory).loadSingle();
+    }
+
+    // Skips a byte order mark and a bare document start marker. Returns -1
+    // if the marker has content after it.
+    private int documentStart() {
+        int start = source.startsWith("﻿") ? 1 : 0;
+        int first = nextContent(start, source.length());
+        if (first < 0 || !source.startsWith("---", first) || column(first) != 0) {
+            return start;
+        }
+
+        int lineEnd = lineEnd(first, source.length());
+        int rest = skipSpaces(first + 3, lineEnd);
+        if (rest == first + 3 && rest < lineEnd) {
+            return start;
+        }
+        if (rest < lineEnd && source.charAt(rest) != '#') {
+            return -1;
+        }
+        return lineEnd;
+    }
+
+    // One pass over the source looking for anything that ties one part of
+    // the document to another, or that the scanner doesn't follow. It errs
+    // on the side of loading eagerly.
+    private boolean isSafe(int from) {
+        boolean lineStart = true;
+        for (int ii = from; ii < source.length(); ++ii) {
+            char c = source.charAt(ii);
+            if (lineStart) {
+                int content = skipIndent(ii);
+                if (content < source.length()) {
+                    char first = source.charAt(content);
+                    if (first == '\t' || first == '%'
+                            || (content == ii && (source.startsWith("---", ii) || source.startsWith("...", ii)))) {
+                        return false;
+                    }
+                }
+                lineStart = false;
+            }
+
+            if (c == '\n') {
+                lineStart = true;
+                continue;
+            }
+            boolean nodeStart = ii == 0 || isBoundary(source.charAt(ii - 1));
+            if (!nodeStart) {
+                continue;
+            }
+
+            char next = ii + 1 < source.length() ? source.charAt(ii + 1) : ' ';
+            if (c == '!'
+                    || ((c == '&' || c == '*') && !isSpace(next) && next != ',' && next != ']' && next != '}')
+                    || (c == '?' && isSpace(next))
+                    || (c == '<' && next == '<' && isMergeKey(ii + 2))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int skipIndent(int from) {
+        while (from < source.length() && source.charAt(from) == ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private boolean isMergeKey(int from) {
+        while (from < source.length() && (source.charAt(from) == ' ' || source.charAt(from) == '\t')) {
+            from++;
+        }
+        return from < source.length() && source.charAt(from) == ':';
+    }
+
+    private static boolean isBoundary(char c) {
+        return isSpace(c) || c == '\n' || c == '[' || c == '{' || c == ',';
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    private int lineStart(int index) {
+        return source.lastIndexOf('\n', index - 1) + 1;
+    }
+
+    private int lineEnd(int index, int to) {
+        int end = source.indexOf('\n', index);
+        return end < 0 || end > to ? to : end;
+    }
+
+    private int column(int index) {
+        return index - lineStart(index);
+    }
+
+    private int skipSpaces(int from, int to) {
+        while (from < to && isSpace(source.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * @return where the content of the first line from the given index on
+     * that isn't blank or a comment starts, or -1 if there is none before
+     * the end.
+     */
+    private int nextContent(int from, int to) {
+        int line = from;
+        while (line < to) {
+            int content = skipSpaces(line, to);
+            if (content < to && source.charAt(content) != '\n' && source.charAt(content) != '#') {
+                return content;
+            }
+            int end = source.indexOf('\n', content);
+            if (end < 0) {
+                return -1;
+            }
+            line = end + 1;
+        }
+        return -1;
+    }
+
+    private int nextLine(int index, int to) {
+        int end = lineEnd(index, to);
+        return end < to ? end + 1 : to;
+    }
+
+    private boolean isSequenceItem(int index, int lineEnd) {
+        return source.charAt(index) == '-'
+                && (index + 1 == lineEnd || isSpace(source.charAt(index + 1)));
+    }
+
+    /**
+     * @return the colon ending the implicit key that starts at the index, or
+     * -1 if the line doesn't start with one.
+     */
+    private int keyEnd(int index, int lineEnd) {
+        char c = source.charAt(index);
+        if (c == '"' || c == '\'') {
+            int end = quoteEnd(index, lineEnd);
+            if (end < 0) {
+                return -1;
+            }
+            end = skipSpaces(end, lineEnd);
+            return end < lineEnd && source.charAt(end) == ':'
+                    && (end + 1 == lineEnd || isSpace(source.charAt(end + 1))) ? end : -1;
+        }
+        if ("[]{},#&*!|>%@`:?".indexOf(c) >= 0) {
+            return -1;
+        }
+
+        for (int ii = index; ii < lineEnd; ++ii) {
+            char d = source.charAt(ii);
+            if (d == ':' && (ii + 1 == lineEnd || isSpace(source.charAt(ii + 1)))) {
+                return ii;
+            }
+            if (d == '#' && isSpace(source.charAt(ii - 1))) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index just past the quote closing the scalar that opens at
+     * the index, or -1 if it isn't closed before the end.
+     */
+    private int quoteEnd(int index, int to) {
+        char quote = source.charAt(index);
+        for (int ii = index + 1; ii < to; ++ii) {
+            char c = source.charAt(ii);
+            if (quote == '"' && c == '\\') {
+                ii++;
+            } else if (c == quote) {
+                if (quote == '\'' && ii + 1 < to && source.charAt(ii + 1) == '\'') {
+                    ii++;
+                } else {
+                    return ii + 1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index just past the bracket closing the flow collection
+     * that opens at the index, or -1 if it isn't closed before the end.
+     */
+    private int flowEnd(int index, int to) {
+        int depth = 0;
+        boolean nodeStart = true;
+        for (int ii = index; ii < to; ++ii) {
+            char c = source.charAt(ii);
+            switch (c) {
+                case '[':
+                case '{':
+                    depth++;
+                    nodeStart = true;
+                    break;
+                case ']':
+                case '}':
+                    if (--depth == 0) {
+                        return ii + 1;
+                    }
+                    nodeStart = false;
+                    break;
+                case ',':
+                case ':':
+                    nodeStart = true;
+                    break;
+                case '"':
+                case '\'':
+                    if (nodeStart) {
+                        int end = quoteEnd(ii, to);
+                        if (end < 0) {
+                            return -1;
+                        }
+                        ii = end - 1;
+                    }
+                    nodeStart = false;
+                    break;
+                case '#':
+                    if (isSpace(source.charAt(ii - 1)) || source.charAt(ii - 1) == '\n') {
+                        ii = lineEnd(ii, to) - 1;
+                    }
+                    break;
+                case ' ':
+                case '\t':
+                case '\r':
+                case '\n':
+                    break;
+                default:
+                    nodeStart = false;
+                    break;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index just past a value that starts at the index, for
+     * quoted scalars and flow collections that may run over several lines,
+     * or the end of the line for anything else. -1 if the value isn't
+     * closed before the end.
+     */
+    private int valueEnd(int index, int lineEnd, int to) {
+        char c = source.charAt(index);
+        if (c == '"' || c == '\'') {
+            return quoteEnd(index, to);
+        }
+        if (c == '[' || c == '{') {
+            return flowEnd(index, to);
+        }
+        return lineEnd;
+    }
+
+    // The entries of one level, in order.
+    private static final class Entries {
+        int count;
+        // Where each entry starts and ends, and where the part of it that is
+        // parsed with the level ends when it holds a nested collection.
+        int[] starts = new int[8];
+        int[] ends = new int[8];
+        int[] heads = new int[8];
+        // Where the nested collection starts, or -1.
+        int[] children = new int[8];
+        boolean[] mappings = new boolean[8];
+
+        void add(int start, int end, int head, int child, boolean mapping) {
+            if (count == starts.length) {
+                int capacity = count * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                heads = Arrays.copyOf(heads, capacity);
+                children = Arrays.copyOf(children, capacity);
+                mappings = Arrays.copyOf(mappings, capacity);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            heads[count] = head;
+            children[count] = child;
+            mappings[count] = mapping;
+            count++;
+        }
+    }
+
+    /**
+     * Finds the entries of the block mapping or sequence that starts at the
+     * index, which may be in the middle of a line for a collection nested
+     * right after a sequence indicator. Returns null if the lines don't
+     * look like one.
+     */
+    private Entries scan(int from, int to, boolean mapping) {
+        Entries entries = new Entries();
+        int line = nextContent(from, to);
+        int indent = line < 0 ? 0 : column(line);
+        while (line >= 0) {
+            int lineEnd = lineEnd(line, to);
+            int value;
+            if (mapping) {
+                int colon = isSequenceItem(line, lineEnd) ? -1 : keyEnd(line, lineEnd);
+                if (colon < 0) {
+                    return null;
+                }
+                value = skipSpaces(colon + 1, lineEnd);
+            } else {
+                if (!isSequenceItem(line, lineEnd)) {
+                    return null;
+                }
+                value = skipSpaces(line + 1, lineEnd);
+            }
+
+            int child = -1;
+            boolean childMapping = false;
+            int end = lineEnd;
+            if (value == lineEnd || source.charAt(value) == '#') {
+                // Nothing on the line itself, so the value is on the lines
+                // below: a nested collection, a scalar, or nothing at all.
+                int next = nextContent(nextLine(line, to), to);
+                if (next >= 0 && (column(next) > indent
+                        || (mapping && column(next) == indent))) {
+                    int nextEnd = lineEnd(next, to);
+                    boolean sequence = isSequenceItem(next, nextEnd);
+                    if (sequence || (column(next) > indent && keyEnd(next, nextEnd) >= 0)) {
+                        child = lineStart(next);
+                        childMapping = !sequence;
+                    }
+                }
+            } else if (!mapping && (isSequenceItem(value, lineEnd) || keyEnd(value, lineEnd) >= 0)) {
+                // A collection nested right after the sequence indicator.
+                child = value;
+                childMapping = !isSequenceItem(value, lineEnd);
+            } else {
+                end = valueEnd(value, lineEnd, to);
+                if (end < 0) {
+                    return null;
+                }
+            }
+
+            // Everything indented deeper belongs to this entry, and so does
+            // a sequence written at the same indentation as its key.
+            int next = nextContent(nextLine(end - 1, to), to);
+            while (next >= 0 && (column(next) > indent
+                    || (mapping && column(next) == indent && isSequenceItem(next, lineEnd(next, to))))) {
+                next = nextContent(nextLine(next, to), to);
+            }
+            if (next >= 0 && column(next) < indent) {
+                return null;
+            }
+
+            int start = Math.max(lineStart(line), from);
+            int head = child >= 0 && !mapping ? line + 1 : lineEnd;
+            entries.add(start, next < 0 ? to : lineStart(next), head, child, childMapping);
+            line = next;
+        }
+        return entries;
+    }
+
+    private INode loadLevel(int from, int to, boolean mapping) {
+        Entries entries = scan(from, to, mapping);
+        if (entries != null) {
+            try {
+                INode level = parseLevel(from, entries, mapping);
+                if (level != null) {
+                    return level;
+                }
+            } catch (YAMLException | UnsupportedOperationException e) {
+                // Loaded eagerly below, which reports the problem if it
+                // wasn't just the scanner misreading the level.
+            }
+        }
+
+        String slice = pad(from).append(source, from, to).toString();
+        return new YamlEventLoader(new StringReader(slice), factory).loadSingle();
+    }
+
+    // A level that starts in the middle of a line is padded with spaces up
+    // to its column, so block indentation inside it still lines up.
+    private StringBuilder pad(int from) {
+        int column = column(from);
+        StringBuilder builder = new StringBuilder();
+        for (int ii = 0; ii < column; ++ii) {
+            builder.append(' ');
+        }
+        return builder;
+    }
+
+    /**
+     * Parses the level with each nested collection left out, and puts lazy
+     * nodes in their place. Returns null if what was parsed doesn't line up
+     * with the entries that were scanned.
+     */
+    private INode parseLevel(int from, Entries entries, boolean mapping) {
+        StringBuilder text = pad(from);
+        for (int ii = 0; ii < entries.count; ++ii) {
+            int end = entries.children[ii] < 0 ? entries.ends[ii] : entries.heads[ii];
+            text.append(source, entries.starts[ii], end);
+            if (text.length() == 0 || text.charAt(text.length() - 1) != '\n') {
+                text.append('\n');
+            }
+        }
+
+        Parser parser = new ParserImpl(new StreamReader(text.toString()));
+        expect(parser, Event.ID.StreamStart);
+        expect(parser, Event.ID.DocumentStart);
+        Event start = parser.getEvent();
+        INode level;
+        int count = 0;
+        if (mapping) {
+            if (!start.is(Event.ID.MappingStart)) {
+                return null;
+            }
+            IObjectNode object = factory.createObject(entries.count);
+            while (!parser.checkEvent(Event.ID.MappingEnd)) {
+                Event key = parser.getEvent();
+                if (!key.is(Event.ID.Scalar)) {
+                    throw new UnsupportedOperationException("Only scalar keys are supported");
+                }
+                if (count == entries.count) {
+                    return null;
+                }
+                INode value = loadEntry(parser, entries, count++);
+                if (value == null) {
+                    return null;
+                }
+                object.set(factory.createKey(((ScalarEvent)key).getValue()), value);
+            }
+            level = object;
+        } else {
+            if (!start.is(Event.ID.SequenceStart)) {
+                return null;
+            }
+            IListNode list = factory.createList(entries.count);
+            while (!parser.checkEvent(Event.ID.SequenceEnd)) {
+                if (count == entries.count) {
+                    return null;
+                }
+                INode value = loadEntry(parser, entries, count++);
+                if (value == null) {
+                    return null;
+                }
+                list.add(value);
+            }
+            level = list;
+        }
+        parser.getEvent();
+        expect(parser, Event.ID.DocumentEnd);
+        expect(parser, Event.ID.StreamEnd);
+        return count == entries.count ? level : null;
+    }
+
+    private INode loadEntry(Parser parser, Entries entries, int index) {
+        Event event = parser.getEvent();
+        int child = entries.children[index];
+        if (child < 0) {
+            return loadNode(parser, event);
+        }
+
+        // The nested collection was left out, so its key parsed as null.
+        if (!event.is(Event.ID.Scalar) || !((ScalarEvent)event).getValue().isEmpty()) {
+            return null;
+        }
+        int end = entries.ends[index];
+        if (entries.mappings[index]) {
+            return new LazyObjectNode(() -> (IObjectNode)loadLevel(child, end, true));
+        }
+        return new LazyListNode(() -> (IListNode)loadLevel(child, end, false));
+    }
+
+    private static void expect(Parser parser, Event.ID id) {
+        Event event = parser.getEvent();
+        if (!event.is(id)) {
+            throw new UnsupportedOperationException("Expected " + id + " but found " + event);
+        }
+    }
+
+    private INode loadNode(Parser parser, Event event) {
+        if (event.is(Event.ID.Scalar)) {
+            ScalarEvent scalar = (ScalarEvent)event;
+            Tag tag = YamlScalars.resolve(scalar.getTag(), scalar.getValue(),
+                    scalar.getImplicit().canOmitTagInPlainScalar());
+            return YamlScalars.construct(tag, scalar.getValue(), factory);
+        } else if (event.is(Event.ID.SequenceStart)) {
+            IListNode list = factory.createList(0);
+            while (!parser.checkEvent(Event.ID.SequenceEnd)) {
+                list.add(loadNode(parser, parser.getEvent()));
+            }
+            parser.getEvent();
+            return list;
+        } else if (event.is(Event.ID.MappingStart)) {
+            IObjectNode object = factory.createObject(0);
+            while (!parser.checkEvent(Event.ID.MappingEnd)) {
+                Event key = parser.getEvent();
+                if (!key.is(Event.ID.Scalar)) {
+                    throw new UnsupportedOperationException("Only scalar keys are supported");
+                }
+                object.set(factory.createKey(((ScalarEvent)key).getValue()), loadNode(parser, parser.getEvent()));
+            }
+            parser.getEvent();
+            return object;
+        } else {
+            throw new UnsupportedOperationException("I dunno what I found");
+        }
+    }
+}
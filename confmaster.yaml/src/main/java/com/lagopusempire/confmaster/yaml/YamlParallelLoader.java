@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.yaml;
+
+import com.lagopusempire.confmaster.core.IListNode;
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.INodeFactory;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+
+/**
+ * Loads a document in two passes. The first reads the parse events into a
+ * bare tree, which is cheap and has to be sequential. The second resolves
+ * and builds the nodes on a fork/join pool: the children of a collection
+ * are split into ranges of roughly equal weight, and each range that holds
+ * more than THRESHOLD events becomes its own task. Resolving scalars and
+ * building nodes is where the time goes, so that part scales with cores.
+ *
+ * The result matches what YamlEventLoader builds from the same input.
+ *
+ * @author Foomf
+ */
+final class YamlParallelLoader {
+    static final int THRESHOLD = 2048;
+
+    private final Parser parser;
+    private final INodeFactory factory;
+    private final ForkJoinPool pool;
+    private final Map<String, RawNode> anchors = new HashMap<>();
+
+    YamlParallelLoader(Reader reader, INodeFactory factory, ForkJoinPool pool) {
+        this.parser = new ParserImpl(new StreamReader(reader));
+        this.factory = factory;
+        this.pool = pool;
+    }
+
+    /**
+     * Loads a stream holding at most one document. Returns null for an
+     * empty stream.
+     */
+    INode loadSingle() {
+        expect(Event.ID.StreamStart);
+        RawNode root = null;
+        if (!parser.checkEvent(Event.ID.StreamEnd)) {
+            expect(Event.ID.DocumentStart);
+            root = read();
+            expect(Event.ID.DocumentEnd);
+            anchors.clear();
+        }
+        if (!parser.checkEvent(Event.ID.StreamEnd)) {
+            throw new UnsupportedOperationException("Expected a single document");
+        }
+        parser.getEvent();
+
+        if (root == null) {
+            return null;
+        }
+        RawNode document = root;
+        return pool.invoke(new RecursiveTask<INode>() {
+            @Override
+            protected INode compute() {
+                return build(document, factory);
+            }
+        });
+    }
+
+    private void expect(Event.ID id) {
+        Event event = parser.getEvent();
+        if (!event.is(id)) {
+            throw new UnsupportedOperationException("Expected " + id + " but found " + event);
+        }
+    }
+
+    // A scalar, or a collection together with everything nested inside it.
+    // Only the parts of the events that building needs are kept. Mappings
+    // keep their keys and values side by side. weights[ii] is the number of
+    // nodes in the first ii children, so any range can be weighed at once.
+    private static final class RawNode {
+        final String tag;
+        final String value;
+        final boolean plain;
+        final RawNode[] keys;
+        final RawNode[] children;
+        final int[] weights;
+
+        RawNode(ScalarEvent scalar) {
+            this.tag = scalar.getTag();
+            this.value = scalar.getValue();
+            this.plain = scalar.getImplicit().canOmitTagInPlainScalar();
+            this.keys = null;
+            this.children = null;
+            this.weights = null;
+        }
+
+        RawNode(RawNode[] keys, RawNode[] children) {
+            this.tag = null;
+            this.value = null;
+            this.plain = false;
+            this.keys = keys;
+            this.children = children;
+            this.weights = new int[children.length + 1];
+            for (int ii = 0; ii < children.length; ++ii) {
+                weights[ii + 1] = weights[ii] + children[ii].weight();
+            }
+        }
+
+        Tag resolve() {
+            return YamlScalars.resolve(tag, value, plain);
+        }
+
+        int weight() {
+            return children == null ? 1 : 1 + weights[children.length];
+        }
+
+        int weight(int from, int to) {
+            return weights[to] - weights[from];
+        }
+    }
+
+    private static final RawNode[] NO_CHILDREN = new RawNode[0];
+
+    private RawNode read() {
+        Event event = parser.getEvent();
+        if (event.is(Event.ID.Alias)) {
+            String anchor = ((AliasEvent)event).getAnchor();
+            RawNode node = anchors.get(anchor);
+            if (node == null) {
+                throw new UnsupportedOperationException("Unknown anchor " + anchor);
+            }
+            return node;
+        }
+
+        RawNode node;
+        if (event.is(Event.ID.Scalar)) {
+            node = new RawNode((ScalarEvent)event);
+        } else if (event.is(Event.ID.SequenceStart)) {
+            List<RawNode> children = new ArrayList<>();
+            while (!parser.checkEvent(Event.ID.SequenceEnd)) {
+                children.add(read());
+            }
+            parser.getEvent();
+            node = new RawNode(null, children.toArray(NO_CHILDREN));
+        } else if (event.is(Event.ID.MappingStart)) {
+            List<RawNode> keys = new ArrayList<>();
+            List<RawNode> children = new ArrayList<>();
+            while (!parser.checkEvent(Event.ID.MappingEnd)) {
+                Event key = parser.getEvent();
+                if (!key.is(Event.ID.Scalar)) {
+                    throw new UnsupportedOperationException("Only scalar keys are supported");
+                }
+                keys.add(new RawNode((ScalarEvent)key));
+                children.add(read());
+            }
+            parser.getEvent();
+            node = new RawNode(keys.toArray(NO_CHILDREN), children.toArray(NO_CHILDREN));
+        } else {
+            throw new UnsupportedOperationException("I dunno what I found");
+        }
+
+        String anchor = ((NodeEvent)event).getAnchor();
+        if (anchor != null) {
+            anchors.put(anchor, node);
+        }
+        return node;
+    }
+
+    // An alias points at the same RawNode as its anchor, so building it
+    // again gives the same independent copy deepClone() would.
+    private static INode build(RawNode raw, INodeFactory factory) {
+        if (raw.children == null) {
+            return YamlScalars.construct(raw.resolve(), raw.value, factory);
+        }
+
+        INode[] children = new INode[raw.children.length];
+        new BuildRange(factory, raw, children, 0, children.length).compute();
+
+        if (raw.keys == null) {
+            IListNode list = factory.createList(children.length);
+            for (INode child : children) {
+                list.add(child);
+            }
+            return list;
+        }
+
+        IObjectNode object = factory.createObject(children.length);
+        List<INode> merges = null;
+        for (int ii = 0; ii < children.length; ++ii) {
+            RawNode key = raw.keys[ii];
+            if (Tag.MERGE.equals(key.resolve())) {
+                if (merges == null) {
+                    merges = new ArrayList<>();
+                }
+                merges.add(children[ii]);
+            } else {
+                object.set(factory.createKey(key.value), children[ii]);
+            }
+        }
+
+        if (merges != null) {
+            for (INode merge : merges) {
+                YamlEventLoader.merge(object, merge);
+            }
+        }
+        return object;
+    }
+
+    private static final class BuildRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final INodeFactory factory;
+        private final RawNode parent;
+        private final INode[] out;
+        private final int from;
+        private final int to;
+
+        BuildRange(INodeFactory factory, RawNode parent, INode[] out, int from, int to) {
+            this.factory = factory;
+            this.parent = parent;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && parent.weight(from, to) > THRESHOLD) {
+                int middle = split();
+                invokeAll(new BuildRange(factory, parent, out, from, middle),
+                        new BuildRange(factory, parent, out, middle, to));
+                return;
+            }
+
+            for (int ii = from; ii < to; ++ii) {
+                out[ii] = build(parent.children[ii], factory);
+            }
+        }
+
+        // Splits the range where it weighs about half, keeping both sides
+        // non-empty.
+        private int split() {
+            int half = parent.weights[from] + parent.weight(from, to) / 2;
+            int index = Arrays.binarySearch(parent.weights, from, to + 1, half);
+            int middle = index >= 0 ? index : -index - 1;
+            return Math.max(from + 1, Math.min(to - 1, middle));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.yaml;
+
+import com.lagopusempire.confmaster.core.IListNode;
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.NodeType;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import org.yaml.snakeyaml.DumperOptions;
+
+/**
+ * Writes a block style document by rendering runs of entries on a fork/join
+ * pool with YamlFragments and writing the pieces out in order. Large
+ * mappings and lists under a key are split further, after writing the
+ * key's own line. The result is byte for byte what YamlEmitter writes for
+ * the whole tree.
+ *
+ * @author Foomf
+ */
+final class YamlParallelWriter {
+    static final int CHUNK = 4096;
+
+    private final DumperOptions options;
+    private final ForkJoinPool pool;
+    private final Writer writer;
+    private final int window;
+    private final Deque<ForkJoinTask<String>> pending = new ArrayDeque<>();
+
+    YamlParallelWriter(Writer writer, DumperOptions options, ForkJoinPool pool) {
+        this.options = options;
+        this.pool = pool;
+        this.writer = writer;
+        this.window = 4 * pool.getParallelism();
+    }
+
+    void write(INode root) throws IOException {
+        if (root.getType() != NodeType.OBJECT
+                || options.getDefaultFlowStyle() != DumperOptions.FlowStyle.BLOCK
+                || weight(root, CHUNK) <= CHUNK) {
+            YamlEmitter emitter = new YamlEmitter(writer, options);
+            emitter.emitStreamStart();
+            emitter.emitDocument(root);
+            emitter.emitStreamEnd();
+            return;
+        }
+
+        splitObject(new ArrayList<>(), (IObjectNode)root);
+        while (!pending.isEmpty()) {
+            writer.write(pending.poll().join());
+        }
+    }
+
+    private void splitObject(List<String> path, IObjectNode object) throws IOException {
+        Map<String, INode> run = new LinkedHashMap<>();
+        int runWeight = 0;
+        for (String key : YamlEmitter.sortedKeys(object)) {
+            INode value = object.get(key);
+            int weight = weight(value, CHUNK);
+            String keyLine = weight > CHUNK && value.getType() != NodeType.VALUE
+                    ? YamlFragments.keyLine(options, path, key)
+                    : null;
+            if (keyLine != null) {
+                submitEntries(path, run);
+                run = new LinkedHashMap<>();
+                runWeight = 0;
+
+                enqueue(pool.submit(() -> keyLine));
+                path.add(key);
+                if (value.getType() == NodeType.OBJECT) {
+                    splitObject(path, (IObjectNode)value);
+                } else {
+                    splitList(path, (IListNode)value);
+                }
+                path.remove(path.size() - 1);
+                continue;
+            }
+
+            run.put(key, value);
+            runWeight += weight;
+            if (runWeight >= CHUNK) {
+                submitEntries(path, run);
+                run = new LinkedHashMap<>();
+                runWeight = 0;
+            }
+        }
+        submitEntries(path, run);
+    }
+
+    private void splitList(List<String> path, IListNode list) throws IOException {
+        int from = 0;
+        int runWeight = 0;
+        for (int ii = 0; ii < list.length(); ++ii) {
+            runWeight += weight(list.get(ii), CHUNK);
+            if (runWeight >= CHUNK) {
+                submitItems(path, list, from, ii + 1);
+                from = ii + 1;
+                runWeight = 0;
+            }
+        }
+        if (from < list.length()) {
+            submitItems(path, list, from, list.length());
+        }
+    }
+
+    // Counts nodes, but stops once the count goes past the limit, so sizing
+    // up a big subtree costs no more than the limit.
+    private static int weight(INode node, int limit) {
+        int weight = 1;
+        if (node.getType() == NodeType.OBJECT) {
+            IObjectNode object = (IObjectNode)node;
+            for (String key : object.keys()) {
+                weight += 1 + weight(object.get(key), limit - weight);
+                if (weight > limit) {
+                    break;
+                }
+            }
+        } else if (node.getType() == NodeType.LIST) {
+            IListNode list = (IListNode)node;
+            for (int ii = 0; ii < list.length() && weight <= limit; ++ii) {
+                weight += weight(list.get(ii), limit - weight);
+            }
+        }
+        return weight;
+    }
+
+    private void submitEntries(List<String> path, Map<String, INode> entries) throws IOException {
+        if (!entries.isEmpty()) {
+            List<String> keys = new ArrayList<>(path);
+            enqueue(pool.submit(() -> YamlFragments.renderEntries(options, keys, entries)));
+        }
+    }
+
+    private void submitItems(List<String> path, IListNode list, int from, int to) throws IOException {
+        List<String> keys = new ArrayList<>(path);
+        enqueue(pool.submit(() -> YamlFragments.renderItems(options, keys, list, from, to)));
+    }
+
+    private void enqueue(ForkJoinTask<String> task) throws IOException {
+        pending.add(task);
+        while (pending.size() > window) {
+            writer.write(pending.poll().join());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.yaml;
+
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.INodeFactory;
+import com.lagopusempire.confmaster.core.ValueNode;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import org.yaml.snakeyaml.external.biz.base64Coder.Base64Coder;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+/**
+ * Turns YAML scalars into value nodes. The number parsing follows the rules
+ * SnakeYAML's own constructor uses, so every loader reads scalars the same
+ * way yaml.load() would, and each one lands in the value type that holds it
+ * without loss.
+ *
+ * @author Foomf
+ */
+final class YamlScalars {
+    private static final Resolver RESOLVER = new Resolver();
+
+    private YamlScalars() {
+    }
+
+    static Tag resolve(String value, boolean implicit) {
+        return RESOLVER.resolve(NodeId.scalar, value, implicit);
+    }
+
+    static Tag resolve(String tag, String value, boolean plain) {
+        if (tag == null || tag.equals("!")) {
+            return RESOLVER.resolve(NodeId.scalar, value, plain);
+        }
+        return new Tag(tag);
+    }
+
+    static INode construct(Tag tag, String value, INodeFactory factory) {
+        if (Tag.STR.equals(tag)) {
+            return factory.createValue(value);
+        } else if (Tag.INT.equals(tag)) {
+            Number number = parseInteger(value);
+            if (number instanceof BigInteger) {
+                return new ValueNode((BigInteger)number);
+            }
+            long integer = number.longValue();
+            if (integer == (int)integer) {
+                return new ValueNode((int)integer);
+            }
+            return new ValueNode(integer);
+        } else if (Tag.FLOAT.equals(tag)) {
+            return new ValueNode(parseFloat(value));
+        } else if (Tag.BOOL.equals(tag)) {
+            return new ValueNode(parseBoolean(value));
+        } else if (Tag.NULL.equals(tag)) {
+            return new ValueNode();
+        } else if (Tag.BINARY.equals(tag)) {
+            // The emitter writes strings it can't print as binary.
+            char[] base64 = value.replaceAll("\\s", "").toCharArray();
+            return factory.createValue(new String(Base64Coder.decode(base64), StandardCharsets.UTF_8));
+        } else if (Tag.TIMESTAMP.equals(tag)) {
+            return factory.createValue(value);
+        } else {
+            throw new UnsupportedOperationException("I dunno what I found");
+        }
+    }
+
+    static boolean parseBoolean(String text) {
+        switch (text.toLowerCase(Locale.ROOT)) {
+            case "yes":
+            case "true":
+            case "on":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    static Number parseInteger(String text) {
+        String value = text.replace("_", "");
+        boolean negative = false;
+        char first = value.charAt(0);
+        if (first == '-') {
+            negative = true;
+            value = value.substring(1);
+        } else if (first == '+') {
+            value = value.substring(1);
+        }
+
+        int base = 10;
+        if ("0".equals(value)) {
+            return 0L;
+        } else if (value.startsWith("0b")) {
+            value = value.substring(2);
+            base = 2;
+        } else if (value.startsWith("0x")) {
+            value = value.substring(2);
+            base = 16;
+        } else if (value.startsWith("0")) {
+            value = value.substring(1);
+            base = 8;
+        } else if (value.indexOf(':') != -1) {
+            String[] digits = value.split(":");
+            long multiplier = 1;
+            long total = 0;
+            for (int ii = digits.length - 1; ii >= 0; --ii) {
+                total += Long.parseLong(digits[ii]) * multiplier;
+                multiplier *= 60;
+            }
+            value = Long.toString(total);
+        }
+
+        if (negative) {
+            value = "-" + value;
+        }
+
+        try {
+            return Long.parseLong(value, base);
+        } catch (NumberFormatException ignored) {
+            return new BigInteger(value, base);
+        }
+    }
+
+    static double parseFloat(String text) {
+        String value = text.replace("_", "").toLowerCase();
+        double sign = 1;
+        char first = value.charAt(0);
+        if (first == '-') {
+            sign = -1;
+            value = value.substring(1);
+        } else if (first == '+') {
+            value = value.substring(1);
+        }
+
+        if (".inf".equals(value)) {
+            return sign * Double.POSITIVE_INFINITY;
+        } else if (".nan".equals(value)) {
+            return Double.NaN;
+        } else if (value.indexOf(':') != -1) {
+            String[] digits = value.split(":");
+            double multiplier = 1;
+            double total = 0;
+            for (int ii = digits.length - 1; ii >= 0; --ii) {
+                total += Double.parseDouble(digits[ii]) * multiplier;
+                multiplier *= 60;
+            }
+            return sign * total;
+        } else {
+            return sign * Double.parseDouble(value);
+        }
+    }
+}
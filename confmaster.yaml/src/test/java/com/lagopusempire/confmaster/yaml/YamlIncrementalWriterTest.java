@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.yaml;
+
+import com.lagopusempire.confmaster.core.IObjectNode;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Foomf
+ */
+public class YamlIncrementalWriterTest {
+    private static final String YAML = "a:\n  x: 1\n  y: two\nb:\n- 3\n- four\nc: 5\n";
+
+    private static void assertSameAsFull(YamlIncrementalWriter writer, IObjectNode root) {
+        assertEquals(YamlCodec.DEFAULT.Serialize(root), writer.Serialize(root));
+    }
+
+    @Test
+    public void seesValuesChangedInPlace() {
+        IObjectNode root = YamlCodec.DEFAULT.DeserializeObject(YAML);
+        YamlIncrementalWriter writer = new YamlIncrementalWriter(YamlCodec.DEFAULT);
+        assertSameAsFull(writer, root);
+
+        root.getObject("a").getValue("x").set(10);
+        assertSameAsFull(writer, root);
+
+        root.getValue("c").set("six");
+        assertSameAsFull(writer, root);
+
+        root.getList("b").getValue(1).set(4);
+        assertSameAsFull(writer, root);
+    }
+
+    @Test
+    public void unchangedTreeIsWrittenTheSame() {
+        IObjectNode root = YamlCodec.DEFAULT.DeserializeObject(YAML);
+        YamlIncrementalWriter writer = new YamlIncrementalWriter(YamlCodec.DEFAULT);
+        String first = writer.Serialize(root);
+        assertEquals(first, writer.Serialize(root));
+        assertEquals(YAML, first);
+    }
+}
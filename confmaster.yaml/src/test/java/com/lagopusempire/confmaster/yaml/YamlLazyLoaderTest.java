@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.yaml;
+
+import com.lagopusempire.confmaster.core.IListNode;
+import com.lagopusempire.confmaster.core.INode;
+import com.lagopusempire.confmaster.core.INodeFactory;
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.LazyListNode;
+import com.lagopusempire.confmaster.core.LazyObjectNode;
+import com.lagopusempire.confmaster.core.NodeFactory;
+import com.lagopusempire.confmaster.core.NodeType;
+import java.util.Random;
+import org.yaml.snakeyaml.DumperOptions;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Foomf
+ */
+public class YamlLazyLoaderTest {
+    private static final YamlCodec EAGER = YamlCodec.DEFAULT;
+    private static final YamlCodec LAZY = YamlCodec.DEFAULT.withLazyLoading(true);
+
+    private static void assertSameAsEager(String yaml) {
+        IObjectNode eager = EAGER.DeserializeObject(yaml);
+        IObjectNode lazy = LAZY.DeserializeObject(yaml);
+        assertEquals(yaml, EAGER.Serialize(eager), EAGER.Serialize(lazy));
+    }
+
+    @Test
+    public void loadsTheSameAsEager() {
+        String[] documents = {
+            "a: 1\nb: two\nc: 3.5\nd: true\ne:\nf: ~\n",
+            "a:\n  b:\n    c: 1\n  d: 2\ne: 3\n",
+            "a:\n- 1\n- 2\nb:\n  - x\n  - y\n",
+            "a:\n- b: 1\n  c:\n  - 2\n  - - 3\n    - 4\n- - 5\n  - d: 6\n-\n  e: 7\n- \n- 8\n",
+            "a: some plain\n  text over\n\n  lines\nb: 'single\n  quoted '' here'\nc: \"double \\\"\n  quoted\\\n  \\u00e9\"\n",
+            "a: |\n  literal\n   kept\n\n  text\nb: >-\n  folded\n  text\nc: |+\n  x\n\nd: 1\n",
+            "a: [1, 2,\n  [3, {b: 4,\n  c: '5]'}]]\nb: {c: \"}\", d: [x]}\n",
+            "# leading comment\n\na: 1 # trailing\n\n  # indented comment\nb:   # comment\n  c: 2\n# between\n  d: 3\n",
+            "a: 1\r\nb:\r\n  c: 2\r\n  d:\r\n  - 3\r\n",
+            "---\na:\n  b: 1\n",
+            "--- # comment\na: 1\n",
+            "'a: b': 1\n\"c # d\": 2\nurl: http://example.com:80/x\ne: f:g\n",
+            "a:\n    b:\n            c: 1\n    d: 2\n",
+            "a:\n  b:\n  c:\n    d:\n",
+            "a: {}\nb: []\nc:\n  d: {}\n",
+            "a: -1\nb: -x\n-c: 2\n",
+            "\uFEFFa:\n  b: 1\n",
+            "a: &x {b: 1}\nc: *x\n",
+            "base: &b\n  x: 1\nderived:\n  <<: *b\n  y: 2\n",
+            "a: !!str 123\nb:\n  c: !!int '4'\n",
+            "? a\n: 1\n",
+        };
+        for (String yaml : documents) {
+            assertSameAsEager(yaml);
+        }
+    }
+
+    @Test
+    public void nestedCollectionsAreLeftUnloaded() {
+        IObjectNode root = LAZY.DeserializeObject("a:\n  b: 1\nc:\n- 2\nd: 3\n");
+        assertTrue(root.get("a") instanceof LazyObjectNode);
+        assertTrue(root.get("c") instanceof LazyListNode);
+        assertFalse(((LazyObjectNode)root.get("a")).isLoaded());
+        assertFalse(((LazyListNode)root.get("c")).isLoaded());
+
+        assertEquals(1, root.getObject("a").getValue("b").intValue());
+        assertEquals(2, root.getList("c").getValue(0).intValue());
+    }
+
+    @Test
+    public void documentsWithAnchorsAreLoadedEagerly() {
+        IObjectNode root = LAZY.DeserializeObject("a: &x\n  b: 1\nc: *x\n");
+        assertFalse(root.get("a") instanceof LazyObjectNode);
+        assertEquals(1, root.getObject("c").getValue("b").intValue());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void brokenNestedLevelsStillFail() {
+        IObjectNode root = LAZY.DeserializeObject("a:\n  b: [1\n  c: 2\nd: 3\n");
+        root.getObject("a").keys();
+    }
+
+    @Test
+    public void randomTreesLoadTheSameAsEager() {
+        Random random = new Random(15);
+        YamlCodec[] writers = {
+            EAGER,
+            EAGER.withIndent(4),
+            EAGER.withWidth(20),
+            EAGER.withFlowStyle(DumperOptions.FlowStyle.AUTO),
+        };
+        for (int ii = 0; ii < 200; ++ii) {
+            IObjectNode tree = randomObject(random, NodeFactory.DEFAULT, 4);
+            for (YamlCodec writer : writers) {
+                assertSameAsEager(writer.Serialize(tree));
+            }
+
+            IObjectNode root = LAZY.DeserializeObject(EAGER.Serialize(tree));
+            for (String key : root.keys()) {
+                INode value = root.get(key);
+                assertTrue(key, value instanceof LazyObjectNode || value instanceof LazyListNode
+                        || value.getType() == NodeType.VALUE || isEmpty(value));
+            }
+        }
+    }
+
+    // Empty collections are written in flow style, and are parsed with the
+    // level they are in.
+    private static boolean isEmpty(INode node) {
+        if (node instanceof IObjectNode) {
+            return ((IObjectNode)node).keys().isEmpty();
+        }
+        return ((IListNode)node).length() == 0;
+    }
+
+    private static final String[] SCALARS = {
+        "plain", "two words", "with: colon", "a # hash", "'quoted'", "\"double\"",
+        "line\nbreak", " padded ", "", "-", "- dash", "[x]", "{y}", "trailing:",
+        "123", "1.5", "true", "null", "~", "é", "tab\there", "#start",
+    };
+
+    // Keys with line breaks would be written as explicit keys, which are
+    // loaded eagerly.
+    private static final String[] KEYS = {
+        "plain", "two words", "with: colon", "a # hash", "'quoted'", "\"double\"",
+        " padded ", "", "-", "- dash", "[x]", "{y}", "trailing:", "123", "true", "~",
+    };
+
+    private static INode randomNode(Random random, INodeFactory factory, int depth) {
+        int kind = random.nextInt(depth > 0 ? 5 : 3);
+        if (kind == 3) {
+            return randomObject(random, factory, depth - 1);
+        } else if (kind == 4) {
+            IListNode list = factory.createList(0);
+            int size = random.nextInt(4);
+            for (int ii = 0; ii < size; ++ii) {
+                list.add(randomNode(random, factory, depth - 1));
+            }
+            return list;
+        } else if (kind == 2) {
+            return factory.createValue(Integer.toString(random.nextInt(1000) - 500));
+        }
+        return factory.createValue(SCALARS[random.nextInt(SCALARS.length)]);
+    }
+
+    private static IObjectNode randomObject(Random random, INodeFactory factory, int depth) {
+        IObjectNode object = factory.createObject(0);
+        int size = random.nextInt(5);
+        for (int ii = 0; ii < size; ++ii) {
+            object.set(KEYS[random.nextInt(KEYS.length)] + ii, randomNode(random, factory, depth));
+        }
+        return object;
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2019 Foomf
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty. In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+package com.lagopusempire.confmaster.yaml;
+
+import com.lagopusempire.confmaster.core.IObjectNode;
+import com.lagopusempire.confmaster.core.IValueNode;
+import com.lagopusempire.confmaster.core.ValueType;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.yaml.snakeyaml.DumperOptions;
+
+/**
+ *
+ * @author Foomf
+ */
+public class YamlNullTest {
+    private static final String YAML = "a: ~\nb:\n  c: null\n  d: 1\ne:\n- ~\n- x\n";
+
+    private static void assertNulls(IObjectNode root) {
+        assertEquals(ValueType.NULL, ((IValueNode)root.get("a")).getValueType());
+        assertEquals(ValueType.NULL, ((IValueNode)root.getObject("b").get("c")).getValueType());
+        assertEquals(ValueType.NULL, ((IValueNode)root.getList("e").get(0)).getValueType());
+        assertEquals(1, root.resolveInt("b.d"));
+    }
+
+    private static void roundTrip(YamlCodec codec) {
+        IObjectNode loaded = codec.DeserializeObject(YAML);
+        assertNulls(loaded);
+        String written = codec.Serialize(loaded);
+        assertNulls(codec.DeserializeObject(written));
+        assertEquals(written, codec.Serialize(codec.DeserializeObject(written)));
+    }
+
+    @Test
+    public void nullsRoundTripInBlockStyle() {
+        roundTrip(YamlCodec.DEFAULT);
+    }
+
+    @Test
+    public void nullsRoundTripInAutoStyle() {
+        roundTrip(YamlCodec.DEFAULT.withFlowStyle(DumperOptions.FlowStyle.AUTO));
+    }
+
+    @Test
+    public void nullsRoundTripInFlowStyle() {
+        roundTrip(YamlCodec.DEFAULT.withFlowStyle(DumperOptions.FlowStyle.FLOW));
+    }
+}